@@ -0,0 +1,49 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonical instances of attendee names. The same few names appear on a great many events, so
+ * sharing one {@code String} per name saves memory and lets set lookups succeed on the reference
+ * check inside {@code equals}.
+ *
+ * <p>Names are held weakly: once no stored event uses a name, it is dropped, so the table only
+ * grows with the names in the store. Only names on events headed for the store should be interned,
+ * not names that are only queried.
+ */
+public final class AttendeeNames {
+  private static final Map<String, WeakReference<String>> names = new WeakHashMap<>();
+
+  private AttendeeNames() {
+    // Disallow instances.
+  }
+
+  /** Returns the canonical instance of {@code name}. Safe to call from any thread. */
+  public static String intern(String name) {
+    synchronized (names) {
+      WeakReference<String> reference = names.get(name);
+      String canonical = reference == null ? null : reference.get();
+      if (canonical == null) {
+        names.put(name, new WeakReference<>(name));
+        canonical = name;
+      }
+      return canonical;
+    }
+  }
+}
@@ -0,0 +1,142 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * For every minute of a horizon, how many members of a group are free, stored run-length encoded.
+ *
+ * <p>The histogram is built with a difference array: each busy block adds one at its start and
+ * subtracts one at its end, and a single prefix sum then gives the number of busy members at every
+ * minute. Building it costs {@code O(blocks + horizon)}, however many candidate times a client
+ * wants to look at.
+ */
+public final class AvailabilityHistogram {
+  /** A stretch of consecutive minutes during which the same number of members are free. */
+  public static final class Run {
+    private final int start;
+    private final int duration;
+    private final int free;
+
+    Run(int start, int duration, int free) {
+      this.start = start;
+      this.duration = duration;
+      this.free = free;
+    }
+
+    /** Returns the start of the run in minutes. */
+    public int start() {
+      return start;
+    }
+
+    /** Returns the number of minutes in the run. */
+    public int duration() {
+      return duration;
+    }
+
+    /** Returns how many members are free throughout the run. */
+    public int free() {
+      return free;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Run
+          && start == ((Run) other).start
+          && duration == ((Run) other).duration
+          && free == ((Run) other).free;
+    }
+
+    @Override
+    public int hashCode() {
+      return start ^ (duration << 11) ^ (free << 22);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Run: [%d, %d) %d free", start, start + duration, free);
+    }
+  }
+
+  private final int members;
+  private final List<Run> runs;
+
+  private AvailabilityHistogram(int members, List<Run> runs) {
+    this.members = members;
+    this.runs = runs;
+  }
+
+  /**
+   * Builds the histogram of {@code attendees} over {@code horizon} from the busy blocks in {@code
+   * store}. Repeated attendees are only counted once.
+   */
+  public static AvailabilityHistogram of(
+      EventStore store, Collection<String> attendees, TimeRange horizon) {
+    EventStore.Snapshot snapshot = store.snapshot();
+    Set<String> members = new HashSet<>(attendees);
+    int origin = horizon.start();
+    int[] busyDeltas = new int[horizon.duration() + 1];
+    for (String member : members) {
+      // Busy times are disjoint, so each member adds at most one to any minute. They are read
+      // straight from the compressed busy list, in start order.
+      Iterator<TimeRange> busyTimes = snapshot.getBusyTimes(Collections.singleton(member));
+      while (busyTimes.hasNext()) {
+        TimeRange busy = busyTimes.next();
+        if (busy.start() >= horizon.end()) {
+          break;
+        }
+        int start = Math.max(busy.start(), horizon.start());
+        int end = Math.min(busy.end(), horizon.end());
+        if (start < end) {
+          busyDeltas[start - origin]++;
+          busyDeltas[end - origin]--;
+        }
+      }
+    }
+
+    List<Run> runs = new ArrayList<>();
+    int busy = 0;
+    int runStart = 0;
+    for (int minute = 0; minute < horizon.duration(); minute++) {
+      int nextBusy = busy + busyDeltas[minute];
+      if (minute > 0 && nextBusy != busy) {
+        runs.add(new Run(origin + runStart, minute - runStart, members.size() - busy));
+        runStart = minute;
+      }
+      busy = nextBusy;
+    }
+    if (horizon.duration() > 0) {
+      runs.add(new Run(origin + runStart, horizon.duration() - runStart, members.size() - busy));
+    }
+    return new AvailabilityHistogram(members.size(), runs);
+  }
+
+  /** Returns the number of distinct members in the group. */
+  public int getMembers() {
+    return members;
+  }
+
+  /** Returns a read-only list of the runs, in time order, covering the whole horizon. */
+  public List<Run> getRuns() {
+    return Collections.unmodifiableList(runs);
+  }
+}
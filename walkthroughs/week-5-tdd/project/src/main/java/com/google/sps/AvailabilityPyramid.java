@@ -0,0 +1,389 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Each attendee's free time over a horizon of whole days, summarised at several resolutions so that
+ * long searches can skip the days that are booked up.
+ *
+ * <p>The horizon is cut into days, hours, quarter hours and minutes. For every block at every
+ * level, the pyramid keeps how many free minutes the block starts with, how many it ends with, and
+ * its longest free run. A parent's summary follows from its children's.
+ *
+ * <p>A search starts from the days and only refines the blocks that can hold a long enough run. A
+ * block that some attendee is busy throughout is skipped. If some attendee's longest run in a block
+ * is too short, only the block's free start and end can be part of a long enough run for that
+ * attendee, so the children in between are skipped.
+ *
+ * <p>Only each attendee's busy ranges are kept up to date. The levels are built from them the first
+ * time a search needs that attendee, so attendees nobody asks about, such as most rooms, cost no
+ * more than their events. Every attendee's ranges and levels are immutable once published, and a
+ * change publishes new ones, so searches take no lock and never hold up the store's writers. A
+ * search running alongside a write may see it applied for some attendees and not yet for others.
+ *
+ * <p>The pyramid can listen to an {@link EventStore} to stay up to date. Busy time is counted in
+ * whole minutes: empty events and anything outside the horizon are ignored.
+ */
+public final class AvailabilityPyramid implements EventStore.Listener {
+  // The minutes per block at each level, from minutes up to days. Each divides the next.
+  private static final int[] WIDTHS = {1, 15, 60, TimeRange.WHOLE_DAY.duration()};
+  private static final int TOP = WIDTHS.length - 1;
+
+  private static final long[] NO_RANGES = new long[0];
+
+  /**
+   * One attendee's busy ranges within the horizon, each packed as {@code start << 32 | end} and
+   * sorted, with one entry per event. The levels are built from them when first needed.
+   */
+  private static final class Busy {
+    private final long[] ranges;
+    private volatile Levels levels;
+
+    Busy(long[] ranges) {
+      this.ranges = ranges;
+    }
+
+    Levels levels(int minutes) {
+      // Two searches may both build them; either result is the same.
+      Levels built = levels;
+      if (built == null) {
+        built = new Levels(ranges, minutes);
+        levels = built;
+      }
+      return built;
+    }
+  }
+
+  /** One attendee's levels. Level 0 is kept as a bit per busy minute; the others as summaries. */
+  private static final class Levels {
+    private final BitSet busy;
+    private final short[][] prefix = new short[WIDTHS.length][];
+    private final short[][] suffix = new short[WIDTHS.length][];
+    private final short[][] longest = new short[WIDTHS.length][];
+
+    Levels(long[] ranges, int minutes) {
+      busy = new BitSet(minutes);
+      for (long range : ranges) {
+        busy.set(start(range), end(range));
+      }
+      for (int level = 1; level < WIDTHS.length; level++) {
+        int blocks = minutes / WIDTHS[level];
+        prefix[level] = new short[blocks];
+        suffix[level] = new short[blocks];
+        longest[level] = new short[blocks];
+        for (int block = 0; block < blocks; block++) {
+          summarize(this, level, block);
+        }
+      }
+    }
+
+    int prefix(int level, int block) {
+      return level == 0 ? free(block) : prefix[level][block];
+    }
+
+    int suffix(int level, int block) {
+      return level == 0 ? free(block) : suffix[level][block];
+    }
+
+    int longest(int level, int block) {
+      return level == 0 ? free(block) : longest[level][block];
+    }
+
+    private int free(int minute) {
+      return busy.get(minute) ? 0 : 1;
+    }
+  }
+
+  private final int days;
+  private final ConcurrentHashMap<String, Busy> busyByAttendee = new ConcurrentHashMap<>();
+  // Blocks looked at by the last search.
+  private volatile int visited;
+
+  /** Creates a pyramid covering {@code days} days from minute zero, with everyone free. */
+  public AvailabilityPyramid(int days) {
+    if (days <= 0) {
+      throw new IllegalArgumentException("days must be positive");
+    }
+    this.days = days;
+  }
+
+  /** Returns the number of days covered. */
+  public int getDays() {
+    return days;
+  }
+
+  /** Marks the time of {@code events} busy for their attendees. */
+  @Override
+  public void added(Collection<Event> events) {
+    for (Map.Entry<String, long[]> entry : rangesByAttendee(events).entrySet()) {
+      final long[] added = entry.getValue();
+      busyByAttendee.compute(
+          entry.getKey(),
+          (attendee, busy) -> new Busy(merge(busy == null ? NO_RANGES : busy.ranges, added)));
+    }
+  }
+
+  /** Frees the time {@code events} took up for their attendees. */
+  @Override
+  public void removed(Collection<Event> events) {
+    for (Map.Entry<String, long[]> entry : rangesByAttendee(events).entrySet()) {
+      final long[] removed = entry.getValue();
+      busyByAttendee.computeIfPresent(
+          entry.getKey(),
+          (attendee, busy) -> {
+            long[] remaining = subtract(busy.ranges, removed);
+            return remaining.length == 0 ? null : new Busy(remaining);
+          });
+    }
+  }
+
+  /**
+   * Returns the times in the horizon during which all of {@code attendees} are free for at least
+   * {@code duration} minutes, as maximal ranges in time order.
+   */
+  public List<TimeRange> find(Collection<String> attendees, long duration) {
+    return find(attendees, duration, Deadline.NONE);
+  }
+
+  /**
+   * Same as {@link #find(Collection, long)}, but stops once {@code deadline} passes, checking it at
+   * every block. The times found by then are returned. They are all free, but the search may have
+   * stopped inside one of them, so its end may be cut short.
+   */
+  public List<TimeRange> find(Collection<String> attendees, long duration, Deadline deadline) {
+    int minutes = days * WIDTHS[TOP];
+    List<Levels> group = new ArrayList<>();
+    for (String attendee : new LinkedHashSet<>(attendees)) {
+      Busy busy = busyByAttendee.get(attendee);
+      // Attendees who are never busy do not narrow anything down.
+      if (busy != null) {
+        group.add(busy.levels(minutes));
+      }
+    }
+
+    int blocks = 0;
+    List<TimeRange> free = new ArrayList<>();
+    for (int day = 0; day < days; day++) {
+      blocks += search(group, TOP, day, duration, deadline, free);
+    }
+    visited = blocks;
+
+    List<TimeRange> longEnough = new ArrayList<>();
+    for (TimeRange range : free) {
+      if (range.duration() >= duration) {
+        longEnough.add(range);
+      }
+    }
+    return longEnough;
+  }
+
+  /** Returns the number of blocks the last {@link #find} looked at. */
+  int visitedBlocks() {
+    return visited;
+  }
+
+  /**
+   * Adds the free parts of {@code block} at {@code level} for {@code group} to {@code free}, and
+   * returns the number of blocks looked at.
+   */
+  private static int search(
+      List<Levels> group,
+      int level,
+      int block,
+      long duration,
+      Deadline deadline,
+      List<TimeRange> free) {
+    if (deadline.passed()) {
+      return 0;
+    }
+    int visited = 1;
+    int width = WIDTHS[level];
+    int start = block * width;
+    boolean allFree = true;
+    // The attendee whose free start and end leave the least to refine, if any can be pruned.
+    Levels narrowest = null;
+    int narrowestWindow = width;
+    for (Levels levels : group) {
+      int longest = levels.longest(level, block);
+      if (longest == 0) {
+        return visited;
+      }
+      if (longest < width) {
+        allFree = false;
+      }
+      if (longest < duration) {
+        int window = levels.prefix(level, block) + levels.suffix(level, block);
+        if (window < narrowestWindow) {
+          narrowest = levels;
+          narrowestWindow = window;
+        }
+      }
+    }
+    if (allFree) {
+      addFree(free, start, start + width);
+      return visited;
+    }
+
+    int childWidth = WIDTHS[level - 1];
+    int children = width / childWidth;
+    int keepUntil = narrowest == null ? start + width : start + narrowest.prefix(level, block);
+    int keepFrom = narrowest == null ? start : start + width - narrowest.suffix(level, block);
+    for (int child = 0; child < children; child++) {
+      int childStart = start + child * childWidth;
+      if (childStart >= keepUntil && childStart + childWidth <= keepFrom) {
+        // Inside the narrowest attendee's short runs, so no long enough run can touch it.
+        continue;
+      }
+      visited += search(group, level - 1, block * children + child, duration, deadline, free);
+    }
+    return visited;
+  }
+
+  /** Adds {@code [start, end)} to {@code free}, joining it to the last range if they touch. */
+  private static void addFree(List<TimeRange> free, int start, int end) {
+    int last = free.size() - 1;
+    if (last >= 0 && free.get(last).end() == start) {
+      start = free.remove(last).start();
+    }
+    free.add(TimeRange.fromStartEnd(start, end, false));
+  }
+
+  /** Returns each attendee's ranges of {@code events} within the horizon, packed and sorted. */
+  private Map<String, long[]> rangesByAttendee(Collection<Event> events) {
+    int minutes = days * WIDTHS[TOP];
+    Map<String, List<Long>> lists = new HashMap<>();
+    for (Event event : events) {
+      int start = Math.max(event.getWhen().start(), 0);
+      int end = Math.min(event.getWhen().end(), minutes);
+      if (start >= end) {
+        continue;
+      }
+      for (String attendee : event.getAttendees()) {
+        List<Long> ranges = lists.get(attendee);
+        if (ranges == null) {
+          ranges = new ArrayList<>();
+          lists.put(attendee, ranges);
+        }
+        ranges.add((long) start << 32 | end);
+      }
+    }
+
+    Map<String, long[]> packed = new HashMap<>();
+    for (Map.Entry<String, List<Long>> entry : lists.entrySet()) {
+      long[] ranges = new long[entry.getValue().size()];
+      for (int i = 0; i < ranges.length; i++) {
+        ranges[i] = entry.getValue().get(i);
+      }
+      Arrays.sort(ranges);
+      packed.put(entry.getKey(), ranges);
+    }
+    return packed;
+  }
+
+  /** Returns the sorted ranges of both {@code a} and {@code b}, which are sorted. */
+  private static long[] merge(long[] a, long[] b) {
+    long[] merged = new long[a.length + b.length];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < merged.length; k++) {
+      merged[k] = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+    }
+    return merged;
+  }
+
+  /** Returns {@code ranges} without one copy of each of {@code removed}. Both are sorted. */
+  private static long[] subtract(long[] ranges, long[] removed) {
+    long[] remaining = new long[ranges.length];
+    int count = 0;
+    int j = 0;
+    for (long range : ranges) {
+      while (j < removed.length && removed[j] < range) {
+        // Not stored, so there is nothing to remove.
+        j++;
+      }
+      if (j < removed.length && removed[j] == range) {
+        j++;
+      } else {
+        remaining[count++] = range;
+      }
+    }
+    return Arrays.copyOf(remaining, count);
+  }
+
+  private static int start(long range) {
+    return (int) (range >>> 32);
+  }
+
+  private static int end(long range) {
+    return (int) range;
+  }
+
+  /** Recomputes the summary of {@code block} at {@code level} from its children. */
+  private static void summarize(Levels levels, int level, int block) {
+    int childWidth = WIDTHS[level - 1];
+    int children = WIDTHS[level] / childWidth;
+    int first = block * children;
+
+    int prefix = 0;
+    int child = 0;
+    while (child < children && levels.longest(level - 1, first + child) == childWidth) {
+      prefix += childWidth;
+      child++;
+    }
+    if (child < children) {
+      prefix += levels.prefix(level - 1, first + child);
+    }
+
+    int suffix = 0;
+    child = children - 1;
+    while (child >= 0 && levels.longest(level - 1, first + child) == childWidth) {
+      suffix += childWidth;
+      child--;
+    }
+    if (child >= 0) {
+      suffix += levels.suffix(level - 1, first + child);
+    }
+
+    // A run can span several children: the end of one, any number of free ones, then the start
+    // of the next.
+    int longest = 0;
+    int run = 0;
+    for (child = 0; child < children; child++) {
+      int childLongest = levels.longest(level - 1, first + child);
+      if (childLongest == childWidth) {
+        run += childWidth;
+        continue;
+      }
+      longest =
+          Math.max(longest, Math.max(childLongest, run + levels.prefix(level - 1, first + child)));
+      run = levels.suffix(level - 1, first + child);
+    }
+    longest = Math.max(longest, run);
+
+    levels.prefix[level][block] = (short) prefix;
+    levels.suffix[level][block] = (short) suffix;
+    levels.longest[level][block] = (short) longest;
+  }
+}
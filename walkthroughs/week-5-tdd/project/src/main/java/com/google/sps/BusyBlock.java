@@ -0,0 +1,64 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A stretch of time during which one attendee is busy, formed by merging all of that attendee's
+ * overlapping or back-to-back events. Blocks keep a link to the events they were made from. Blocks
+ * are considered read-only.
+ */
+public final class BusyBlock {
+  private final TimeRange when;
+  private final List<Event> sources;
+
+  /**
+   * Creates a new block.
+   *
+   * @param when The time covered by the block. Must be non-null.
+   * @param sources The events that make up the block. Must be non-null.
+   */
+  public BusyBlock(TimeRange when, Collection<Event> sources) {
+    if (when == null) {
+      throw new IllegalArgumentException("when cannot be null");
+    }
+
+    if (sources == null) {
+      throw new IllegalArgumentException("sources cannot be null. Use empty array instead.");
+    }
+
+    this.when = when;
+    this.sources = new ArrayList<>(sources);
+  }
+
+  /** Returns the {@code TimeRange} covered by this block. */
+  public TimeRange getWhen() {
+    return when;
+  }
+
+  /** Returns a read-only list of the events that make up this block. */
+  public List<Event> getSources() {
+    return Collections.unmodifiableList(sources);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Busy: %s from %d events", when, sources.size());
+  }
+}
@@ -0,0 +1,235 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The disjoint busy blocks of one attendee, compressed into a byte array. Each block is stored as
+ * two varints: the distance from the end of the previous block to its start, then its length. Busy
+ * blocks in a calendar are short and close together, so most blocks take two or three bytes instead
+ * of a {@link BusyBlock}, a {@link TimeRange} and a list of sources.
+ *
+ * <p>The attendee's events are kept alongside, sorted by start time, so that {@link BusyBlock}s and
+ * their sources can still be rebuilt for the callers that want them. Busy lists are immutable.
+ */
+final class BusyList {
+  static final BusyList EMPTY = new BusyList(new byte[0], 0, new Event[0]);
+
+  /** Reads the blocks of a busy list one at a time into primitive fields. */
+  static final class Cursor {
+    private final byte[] data;
+    private int position;
+    private int remaining;
+
+    /** The block the cursor is on. Only valid once {@link #next()} has returned true. */
+    int start;
+
+    int end;
+
+    private Cursor(BusyList list) {
+      this.data = list.data;
+      this.remaining = list.size;
+    }
+
+    /** Moves to the next block, returning false if there are no more. */
+    boolean next() {
+      if (remaining == 0) {
+        return false;
+      }
+      remaining--;
+      start = end + decodeZigZag(readVarint());
+      end = start + readVarint();
+      return true;
+    }
+
+    private int readVarint() {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = data[position++];
+        value |= (b & 0x7f) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+  }
+
+  private final byte[] data;
+  private final int size;
+  private final Event[] events;
+
+  private BusyList(byte[] data, int size, Event[] events) {
+    this.data = data;
+    this.size = size;
+    this.events = events;
+  }
+
+  /** Returns the number of blocks. */
+  int size() {
+    return size;
+  }
+
+  /** Returns a read-only list of the attendee's events, sorted by start time. */
+  List<Event> events() {
+    return Collections.unmodifiableList(Arrays.asList(events));
+  }
+
+  /** Returns a cursor before the first block. */
+  Cursor cursor() {
+    return new Cursor(this);
+  }
+
+  /**
+   * Returns the blocks as {@link BusyBlock}s, each with the events that make it up. Every event
+   * belongs to the block its start falls in; blocks are at least a minute apart, so that block is
+   * unique even for events that start right as a block ends.
+   */
+  List<BusyBlock> toBlocks() {
+    List<BusyBlock> blocks = new ArrayList<>(size);
+    Cursor cursor = cursor();
+    int i = 0;
+    while (cursor.next()) {
+      List<Event> sources = new ArrayList<>();
+      for (; i < events.length && events[i].getWhen().start() <= cursor.end; i++) {
+        sources.add(events[i]);
+      }
+      blocks.add(new BusyBlock(TimeRange.fromStartEnd(cursor.start, cursor.end, false), sources));
+    }
+    return Collections.unmodifiableList(blocks);
+  }
+
+  /**
+   * Returns the busy list formed by adding {@code sortedEvents} to {@code base}. The events must be
+   * sorted by start time. Overlapping and back-to-back times are merged into one block.
+   */
+  static BusyList merge(BusyList base, List<Event> sortedEvents) {
+    Event[] events = new Event[base.events.length + sortedEvents.size()];
+    Encoder encoder = new Encoder(base.data.length + 4 * sortedEvents.size());
+    Cursor cursor = base.cursor();
+    boolean hasBlock = cursor.next();
+    int start = 0;
+    int end = 0;
+    boolean open = false;
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (hasBlock || j < sortedEvents.size()) {
+      // Take whichever of the next block and next event starts first.
+      int nextStart;
+      int nextEnd;
+      if (j == sortedEvents.size()
+          || (hasBlock && cursor.start <= sortedEvents.get(j).getWhen().start())) {
+        nextStart = cursor.start;
+        nextEnd = cursor.end;
+        hasBlock = cursor.next();
+      } else {
+        nextStart = sortedEvents.get(j).getWhen().start();
+        nextEnd = sortedEvents.get(j).getWhen().end();
+        j++;
+      }
+
+      if (!open || nextStart > end) {
+        if (open) {
+          encoder.add(start, end);
+        }
+        open = true;
+        start = nextStart;
+        end = nextEnd;
+      } else {
+        end = Math.max(end, nextEnd);
+      }
+    }
+    if (open) {
+      encoder.add(start, end);
+    }
+
+    // Merge the events too. Prefer the stored event on ties so that earlier additions stay first.
+    j = 0;
+    while (i < base.events.length && j < sortedEvents.size()) {
+      if (Event.ORDER_BY_START.compare(sortedEvents.get(j), base.events[i]) < 0) {
+        events[k++] = sortedEvents.get(j++);
+      } else {
+        events[k++] = base.events[i++];
+      }
+    }
+    while (i < base.events.length) {
+      events[k++] = base.events[i++];
+    }
+    while (j < sortedEvents.size()) {
+      events[k++] = sortedEvents.get(j++);
+    }
+    return new BusyList(encoder.toByteArray(), encoder.size, events);
+  }
+
+  /**
+   * Returns the busy list formed by taking one event equal to each of {@code removed} out of {@code
+   * base}. The remaining events' blocks are rebuilt, since a removed event may have joined others.
+   */
+  static BusyList remove(BusyList base, List<Event> removed) {
+    List<Event> remaining = new ArrayList<>(Arrays.asList(base.events));
+    for (Event event : removed) {
+      remaining.remove(event);
+    }
+    return merge(EMPTY, remaining);
+  }
+
+  /** Appends blocks to a growing byte array. */
+  private static final class Encoder {
+    private byte[] data;
+    private int length;
+    private int size;
+    private int previousEnd;
+
+    Encoder(int capacity) {
+      data = new byte[Math.max(capacity, 8)];
+    }
+
+    void add(int start, int end) {
+      writeVarint(encodeZigZag(start - previousEnd));
+      writeVarint(end - start);
+      previousEnd = end;
+      size++;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(data, length);
+    }
+
+    private void writeVarint(int value) {
+      if (length + 5 > data.length) {
+        data = Arrays.copyOf(data, data.length * 2);
+      }
+      while ((value & ~0x7f) != 0) {
+        data[length++] = (byte) ((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      data[length++] = (byte) value;
+    }
+  }
+
+  // Only the first block can start before the previous end (at zero), if its start is negative.
+  // Zig-zag encoding keeps small negative distances small.
+  private static int encodeZigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static int decodeZigZag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
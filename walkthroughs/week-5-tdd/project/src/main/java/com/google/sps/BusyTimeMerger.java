@@ -0,0 +1,81 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Iterates over the busy times of several attendees at once, in ascending start order. Each
+ * attendee's busy list is already sorted, so this is a k-way merge: every step costs {@code log k}
+ * for {@code k} attendees, and nothing is copied or sorted up front.
+ *
+ * <p>Busy lists are decoded straight into primitive cursors, and times that overlap or touch are
+ * joined before they are returned, so the only objects made are the returned ranges.
+ */
+final class BusyTimeMerger implements Iterator<TimeRange> {
+  /** The position reached in one attendee's busy list. */
+  private static final class Cursor implements Comparable<Cursor> {
+    private final BusyList.Cursor blocks;
+
+    Cursor(BusyList.Cursor blocks) {
+      this.blocks = blocks;
+    }
+
+    @Override
+    public int compareTo(Cursor other) {
+      return Integer.compare(blocks.start, other.blocks.start);
+    }
+  }
+
+  private final PriorityQueue<Cursor> cursors;
+
+  /** Creates a merger over {@code busyLists}. */
+  BusyTimeMerger(Collection<BusyList> busyLists) {
+    cursors = new PriorityQueue<>(Math.max(1, busyLists.size()));
+    for (BusyList busyList : busyLists) {
+      BusyList.Cursor blocks = busyList.cursor();
+      if (blocks.next()) {
+        cursors.add(new Cursor(blocks));
+      }
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return !cursors.isEmpty();
+  }
+
+  @Override
+  public TimeRange next() {
+    if (cursors.isEmpty()) {
+      throw new NoSuchElementException();
+    }
+
+    // Keep taking the earliest block while it starts before the time taken so far ends.
+    int start = cursors.peek().blocks.start;
+    int end = start;
+    while (!cursors.isEmpty() && cursors.peek().blocks.start <= end) {
+      Cursor cursor = cursors.poll();
+      end = Math.max(end, cursor.blocks.end);
+      if (cursor.blocks.next()) {
+        cursors.add(cursor);
+      }
+    }
+    return TimeRange.fromStartEnd(start, end, false);
+  }
+}
@@ -0,0 +1,35 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/** Somewhere that knows when people are busy, such as an {@link EventStore}. */
+public interface BusyTimeSource {
+  /**
+   * Returns the times during which any of {@code attendees} is busy, in ascending start order. The
+   * ranges may overlap.
+   */
+  Iterator<TimeRange> getBusyTimes(Collection<String> attendees);
+
+  /**
+   * Returns about how many busy times {@code attendee} has, or -1 if that cannot be told cheaply.
+   * Used to plan queries; see {@link QueryPlanner}.
+   */
+  default int estimateBusyTimes(String attendee) {
+    return -1;
+  }
+}
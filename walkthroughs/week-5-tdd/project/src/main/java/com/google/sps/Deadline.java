@@ -0,0 +1,78 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a query should give up and return what it has found so far. The query
+ * checks {@link #passed} as it goes, and the caller asks {@link #isReached} afterwards to learn
+ * whether the answer is partial. A deadline belongs to one query at a time.
+ *
+ * <p>Reading the clock costs more than the work between two checks, so only every {@code
+ * CHECK_EVERY}th check reads it. A query can therefore run a little past its deadline.
+ */
+public final class Deadline {
+  /** A deadline that never passes. It may be shared between queries. */
+  public static final Deadline NONE = new Deadline(0, /*bounded=*/ false);
+
+  private static final int CHECK_EVERY = 64;
+
+  private final long nanoTime;
+  private final boolean bounded;
+  private int untilNextCheck = 1;
+  private boolean reached;
+
+  private Deadline(long nanoTime, boolean bounded) {
+    this.nanoTime = nanoTime;
+    this.bounded = bounded;
+  }
+
+  /** Returns a deadline {@code millis} milliseconds from now. Must be non-negative. */
+  public static Deadline after(long millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("millis cannot be negative");
+    }
+    return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis), true);
+  }
+
+  /**
+   * Returns true if the deadline has passed, in which case the caller should stop. The first time
+   * it does, the timeout is counted in {@link Metrics} as {@code query.timeouts}.
+   */
+  public boolean passed() {
+    if (!bounded) {
+      return false;
+    }
+    if (reached) {
+      return true;
+    }
+    if (--untilNextCheck > 0) {
+      return false;
+    }
+    untilNextCheck = CHECK_EVERY;
+    if (System.nanoTime() - nanoTime < 0) {
+      return false;
+    }
+    reached = true;
+    Metrics.increment("query.timeouts");
+    return true;
+  }
+
+  /** Returns true if a query stopped early because of this deadline. */
+  public boolean isReached() {
+    return reached;
+  }
+}
@@ -0,0 +1,145 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Finds every attendee whose own events overlap, without comparing every pair of events.
+ *
+ * <p>The store already keeps each attendee's events sorted by start time, so one sweep per attendee
+ * is enough: an event can only overlap the events still running when it starts. Attendees are
+ * independent, so they are split across a fork-join pool, and each conflict is handed to the caller
+ * as soon as it is found rather than collected into a list.
+ */
+public final class DoubleBookingReport {
+  // Attendees per fork-join task. Enough work per task to outweigh forking it.
+  private static final int ATTENDEES_PER_TASK = 256;
+
+  /** Two of one attendee's events that overlap. */
+  public static final class Conflict {
+    private final String attendee;
+    private final Event first;
+    private final Event second;
+
+    Conflict(String attendee, Event first, Event second) {
+      this.attendee = attendee;
+      this.first = first;
+      this.second = second;
+    }
+
+    /** Returns the attendee who is double-booked. */
+    public String getAttendee() {
+      return attendee;
+    }
+
+    /** Returns the event that starts first. */
+    public Event getFirst() {
+      return first;
+    }
+
+    /** Returns the event that starts while the first is running. */
+    public Event getSecond() {
+      return second;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "Conflict: %s in %s and %s", attendee, first.getTitle(), second.getTitle());
+    }
+  }
+
+  private DoubleBookingReport() {
+    // Disallow instances.
+  }
+
+  /** Same as {@link #run(EventStore.Snapshot, ForkJoinPool, Consumer)} on the common pool. */
+  public static void run(EventStore.Snapshot snapshot, Consumer<Conflict> sink) {
+    run(snapshot, ForkJoinPool.commonPool(), sink);
+  }
+
+  /**
+   * Passes every conflict in {@code snapshot} to {@code sink}, and returns once all have been
+   * found. {@code sink} is called from several threads at once, so it must be thread-safe. The
+   * conflicts of one attendee arrive in start order, but attendees are interleaved.
+   */
+  public static void run(EventStore.Snapshot snapshot, ForkJoinPool pool, Consumer<Conflict> sink) {
+    List<String> attendees = new ArrayList<>(snapshot.attendees());
+    pool.invoke(new Sweep(snapshot, attendees, 0, attendees.size(), sink));
+  }
+
+  /** Sweeps the attendees in {@code [from, to)}, splitting the range while it is large. */
+  private static final class Sweep extends RecursiveAction {
+    private final EventStore.Snapshot snapshot;
+    private final List<String> attendees;
+    private final int from;
+    private final int to;
+    private final Consumer<Conflict> sink;
+
+    Sweep(
+        EventStore.Snapshot snapshot,
+        List<String> attendees,
+        int from,
+        int to,
+        Consumer<Conflict> sink) {
+      this.snapshot = snapshot;
+      this.attendees = attendees;
+      this.from = from;
+      this.to = to;
+      this.sink = sink;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > ATTENDEES_PER_TASK) {
+        int middle = (from + to) >>> 1;
+        invokeAll(
+            new Sweep(snapshot, attendees, from, middle, sink),
+            new Sweep(snapshot, attendees, middle, to, sink));
+        return;
+      }
+      for (int i = from; i < to; i++) {
+        sweep(attendees.get(i), snapshot.eventsOf(attendees.get(i)), sink);
+      }
+    }
+  }
+
+  /** Reports the overlapping pairs among {@code events}, which must be sorted by start time. */
+  static void sweep(String attendee, List<Event> events, Consumer<Conflict> sink) {
+    // The events that may still overlap a later one. Usually only one or two.
+    List<Event> running = new ArrayList<>();
+    for (Event event : events) {
+      TimeRange when = event.getWhen();
+      Iterator<Event> iterator = running.iterator();
+      while (iterator.hasNext()) {
+        Event earlier = iterator.next();
+        TimeRange earlierWhen = earlier.getWhen();
+        // Once it has ended, an earlier event can only overlap events that start with it.
+        if (earlierWhen.end() <= when.start() && earlierWhen.start() < when.start()) {
+          iterator.remove();
+        } else if (earlierWhen.overlaps(when)) {
+          sink.accept(new Conflict(attendee, earlier, event));
+        }
+      }
+      running.add(event);
+    }
+  }
+}
@@ -16,6 +16,7 @@ package com.google.sps;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -24,6 +25,15 @@ import java.util.Set;
  * busy. Events are considered read-only.
  */
 public final class Event {
+  /** A comparator for sorting events by their start time in ascending order. */
+  public static final Comparator<Event> ORDER_BY_START =
+      new Comparator<Event>() {
+        @Override
+        public int compare(Event a, Event b) {
+          return Long.compare(a.getWhen().start(), b.getWhen().start());
+        }
+      };
+
   private final String title;
   private final TimeRange when;
   private final Set<String> attendees = new HashSet<>();
@@ -0,0 +1,389 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the known events, kept sorted by start time as they are added so that queries never need to
+ * sort them. Events with the same start time stay in the order they were added.
+ *
+ * <p>As events arrive, each attendee's events are also compacted into disjoint busy blocks, so that
+ * duplicate, overlapping and back-to-back events are merged once at ingest rather than on every
+ * query. The blocks are stored as a compressed {@link BusyList} of a few bytes each, and are only
+ * turned into {@link BusyBlock} objects for callers that ask for them.
+ *
+ * <p>The store is versioned. Readers take an immutable {@link Snapshot} and never block or see a
+ * half-applied write. Writers build the next snapshot copy-on-write: attendees are spread over a
+ * fixed number of partitions, and the events themselves are kept in an {@link EventTimeline} of
+ * hour buckets. Only the partitions and buckets a write touches are copied. Writes that arrive
+ * while another writer is publishing are queued and published together in one snapshot, so the
+ * number of snapshots grows with write bursts rather than with events.
+ */
+public final class EventStore implements BusyTimeSource {
+  private static final int PARTITION_COUNT = 64;
+
+  /** An immutable, consistent view of the store at one version. */
+  public static final class Snapshot implements BusyTimeSource {
+    private final long version;
+    private final EventTimeline events;
+    private final Map<String, BusyList>[] partitions;
+    // The events as one list, built the first time someone asks for it.
+    private volatile List<Event> eventList;
+
+    private Snapshot(long version, EventTimeline events, Map<String, BusyList>[] partitions) {
+      this.version = version;
+      this.events = events;
+      this.partitions = partitions;
+    }
+
+    /** Returns the version of this snapshot. Each published write batch adds one. */
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * Returns a read-only list of the events, sorted by start time. The list is built on the first
+     * call, so queries, which only read busy lists, never pay for it.
+     */
+    public List<Event> getEvents() {
+      List<Event> list = eventList;
+      if (list == null) {
+        list = Collections.unmodifiableList(events.toList());
+        eventList = list;
+      }
+      return list;
+    }
+
+    /**
+     * Returns a read-only list of the disjoint blocks of time during which {@code attendee} is
+     * busy, sorted by start time. Attendees without any events have no blocks.
+     */
+    public List<BusyBlock> getBusyBlocks(String attendee) {
+      BusyList blocks = partitions[partitionOf(attendee)].get(attendee);
+      if (blocks == null) {
+        return Collections.emptyList();
+      }
+      return blocks.toBlocks();
+    }
+
+    /**
+     * Returns the busy times of {@code attendees} in ascending start order, decoding and merging
+     * the attendees' busy lists as they are read. Overlapping times are already joined up.
+     */
+    @Override
+    public Iterator<TimeRange> getBusyTimes(Collection<String> attendees) {
+      List<BusyList> busyLists = new ArrayList<>(attendees.size());
+      for (String attendee : attendees) {
+        BusyList blocks = partitions[partitionOf(attendee)].get(attendee);
+        if (blocks != null) {
+          busyLists.add(blocks);
+        }
+      }
+      return new BusyTimeMerger(busyLists);
+    }
+
+    /** Returns every attendee with at least one event. */
+    Collection<String> attendees() {
+      List<String> attendees = new ArrayList<>();
+      for (Map<String, BusyList> partition : partitions) {
+        attendees.addAll(partition.keySet());
+      }
+      return attendees;
+    }
+
+    /** Returns the events of {@code attendee}, sorted by start time. */
+    List<Event> eventsOf(String attendee) {
+      BusyList blocks = partitions[partitionOf(attendee)].get(attendee);
+      return blocks == null ? Collections.<Event>emptyList() : blocks.events();
+    }
+
+    /** Returns the exact number of busy blocks {@code attendee} has. */
+    @Override
+    public int estimateBusyTimes(String attendee) {
+      BusyList blocks = partitions[partitionOf(attendee)].get(attendee);
+      return blocks == null ? 0 : blocks.size();
+    }
+
+    /** Returns the number of events in the snapshot. */
+    public int size() {
+      return events.size();
+    }
+  }
+
+  /** A write waiting to be published: events to add or events to remove. */
+  private static final class Change {
+    private final Collection<Event> added;
+    private final Collection<Event> removed;
+
+    Change(Collection<Event> added, Collection<Event> removed) {
+      this.added = added;
+      this.removed = removed;
+    }
+  }
+
+  /**
+   * Told about every change to a store, in the order the changes are published. Listeners are
+   * called while the store holds its write lock, so they must be quick and must not write to the
+   * store.
+   */
+  public interface Listener {
+    /** Called after {@code events} were added. */
+    void added(Collection<Event> events);
+
+    /** Called after {@code events} were removed. Only events that were stored are passed. */
+    void removed(Collection<Event> events);
+  }
+
+  private final AtomicReference<Snapshot> current;
+  private final ConcurrentLinkedQueue<Change> pending = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  @SuppressWarnings("unchecked")
+  public EventStore() {
+    Map<String, BusyList>[] partitions = new Map[PARTITION_COUNT];
+    Arrays.fill(partitions, Collections.<String, BusyList>emptyMap());
+    current = new AtomicReference<>(new Snapshot(0, EventTimeline.EMPTY, partitions));
+  }
+
+  /** Creates a store holding {@code events}. */
+  public EventStore(Collection<Event> events) {
+    this();
+    addAll(events);
+  }
+
+  /**
+   * Tells {@code listener} about every stored event, then about every change from now on. No change
+   * is missed or told twice, even if writes are happening meanwhile.
+   */
+  public void addListener(Listener listener) {
+    writeLock.lock();
+    try {
+      List<Event> events = current.get().getEvents();
+      if (!events.isEmpty()) {
+        listener.added(events);
+      }
+      listeners.add(listener);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Returns the latest published snapshot. Never blocks. */
+  public Snapshot snapshot() {
+    return current.get();
+  }
+
+  /**
+   * Adds one event after every event that starts at or before it. The event is visible to every
+   * snapshot taken after this returns.
+   */
+  public void add(Event event) {
+    addAll(Collections.singletonList(event));
+  }
+
+  /**
+   * Adds many events at once. The batch is sorted on its own and then merged with the stored events
+   * in a single pass, which is cheaper than inserting the events one at a time. The events are
+   * visible to every snapshot taken after this returns.
+   */
+  public void addAll(Collection<Event> batch) {
+    write(new Change(batch, Collections.<Event>emptyList()));
+  }
+
+  /**
+   * Removes one stored event equal to each of {@code events}. Events that are not stored are
+   * ignored. The removal is visible to every snapshot taken after this returns.
+   */
+  public void removeAll(Collection<Event> events) {
+    write(new Change(Collections.<Event>emptyList(), events));
+  }
+
+  /** Queues {@code change} and returns once a snapshot including it has been published. */
+  private void write(Change change) {
+    pending.add(change);
+    writeLock.lock();
+    try {
+      // Whoever holds the lock publishes everything queued so far. If an earlier writer already
+      // published this change along with its own, there is nothing left to do.
+      Snapshot base = current.get();
+      long version = base.version + 1;
+      Snapshot next = base;
+      List<Event> added = new ArrayList<>();
+      // What was really added and removed, in order, for the listeners.
+      List<Change> published = new ArrayList<>();
+      for (Change queued = pending.poll(); queued != null; queued = pending.poll()) {
+        if (!queued.removed.isEmpty()) {
+          // Removals must see every addition queued before them.
+          if (!added.isEmpty()) {
+            next = apply(next, added, version);
+            published.add(new Change(added, Collections.<Event>emptyList()));
+            added = new ArrayList<>();
+          }
+          List<Event> removed = new ArrayList<>();
+          next = remove(next, queued.removed, version, removed);
+          if (!removed.isEmpty()) {
+            published.add(new Change(Collections.<Event>emptyList(), removed));
+          }
+        }
+        added.addAll(queued.added);
+      }
+      if (!added.isEmpty()) {
+        next = apply(next, added, version);
+        published.add(new Change(added, Collections.<Event>emptyList()));
+      }
+      if (next != base) {
+        current.set(next);
+      }
+      for (Change done : published) {
+        for (Listener listener : listeners) {
+          if (!done.added.isEmpty()) {
+            listener.added(done.added);
+          } else {
+            listener.removed(done.removed);
+          }
+        }
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Returns the events of the latest snapshot, sorted by start time. */
+  public List<Event> getEvents() {
+    return snapshot().getEvents();
+  }
+
+  /** Returns the busy blocks of {@code attendee} in the latest snapshot. */
+  public List<BusyBlock> getBusyBlocks(String attendee) {
+    return snapshot().getBusyBlocks(attendee);
+  }
+
+  /**
+   * Returns the busy times of {@code attendees} in the latest snapshot. Callers that ask more than
+   * once should take a {@link #snapshot()} and ask it instead, so every answer comes from the same
+   * version.
+   */
+  @Override
+  public Iterator<TimeRange> getBusyTimes(Collection<String> attendees) {
+    return snapshot().getBusyTimes(attendees);
+  }
+
+  /** Returns the number of busy blocks {@code attendee} has in the latest snapshot. */
+  @Override
+  public int estimateBusyTimes(String attendee) {
+    return snapshot().estimateBusyTimes(attendee);
+  }
+
+  /** Returns the number of events in the latest snapshot. */
+  public int size() {
+    return snapshot().size();
+  }
+
+  /**
+   * Returns the snapshot, at {@code version}, that follows {@code base} once {@code batch} is
+   * added.
+   */
+  private static Snapshot apply(Snapshot base, List<Event> batch, long version) {
+    List<Event> sortedBatch = new ArrayList<>(batch);
+    Collections.sort(sortedBatch, Event.ORDER_BY_START);
+
+    EventTimeline merged = base.events.add(sortedBatch);
+
+    // Group the batch by attendee, keeping each group sorted, then fold every group into that
+    // attendee's blocks in one pass. Only the partitions holding those attendees are copied.
+    Map<String, List<Event>> batchByAttendee = new HashMap<>();
+    for (Event event : sortedBatch) {
+      for (String attendee : event.getAttendees()) {
+        List<Event> attendeeEvents = batchByAttendee.get(attendee);
+        if (attendeeEvents == null) {
+          attendeeEvents = new ArrayList<>();
+          batchByAttendee.put(attendee, attendeeEvents);
+        }
+        attendeeEvents.add(event);
+      }
+    }
+    Map<String, BusyList>[] partitions = base.partitions.clone();
+    boolean[] copied = new boolean[PARTITION_COUNT];
+    for (Map.Entry<String, List<Event>> entry : batchByAttendee.entrySet()) {
+      int partition = partitionOf(entry.getKey());
+      if (!copied[partition]) {
+        partitions[partition] = new HashMap<>(partitions[partition]);
+        copied[partition] = true;
+      }
+      BusyList blocks = partitions[partition].get(entry.getKey());
+      if (blocks == null) {
+        blocks = BusyList.EMPTY;
+      }
+      partitions[partition].put(entry.getKey(), BusyList.merge(blocks, entry.getValue()));
+    }
+    return new Snapshot(version, merged, partitions);
+  }
+
+  /**
+   * Returns the snapshot, at {@code version}, that follows {@code base} once one event equal to
+   * each of {@code events} is removed, adding the events that really were to {@code removed}. Only
+   * the busy lists of the removed events' attendees are rebuilt.
+   */
+  private static Snapshot remove(
+      Snapshot base, Collection<Event> events, long version, List<Event> removed) {
+    int before = removed.size();
+    EventTimeline remaining = base.events.remove(new ArrayList<>(events), removed);
+    if (remaining == base.events) {
+      return base;
+    }
+
+    Map<String, List<Event>> removedByAttendee = new HashMap<>();
+    for (Event event : removed.subList(before, removed.size())) {
+      for (String attendee : event.getAttendees()) {
+        removedByAttendee.computeIfAbsent(attendee, key -> new ArrayList<>()).add(event);
+      }
+    }
+
+    Map<String, BusyList>[] partitions = base.partitions.clone();
+    boolean[] copied = new boolean[PARTITION_COUNT];
+    for (Map.Entry<String, List<Event>> entry : removedByAttendee.entrySet()) {
+      int partition = partitionOf(entry.getKey());
+      if (!copied[partition]) {
+        partitions[partition] = new HashMap<>(partitions[partition]);
+        copied[partition] = true;
+      }
+      BusyList blocks =
+          BusyList.remove(partitions[partition].get(entry.getKey()), entry.getValue());
+      if (blocks.size() == 0) {
+        partitions[partition].remove(entry.getKey());
+      } else {
+        partitions[partition].put(entry.getKey(), blocks);
+      }
+    }
+    return new Snapshot(version, remaining, partitions);
+  }
+
+  private static int partitionOf(String attendee) {
+    return Math.floorMod(attendee.hashCode(), PARTITION_COUNT);
+  }
+}
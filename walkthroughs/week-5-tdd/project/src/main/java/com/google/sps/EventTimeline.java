@@ -0,0 +1,187 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable list of events sorted by start time, split into buckets by the hour they start in.
+ * Events with the same start time share a bucket, where they stay in the order they were added.
+ *
+ * <p>Changes are copy-on-write per bucket: a new timeline shares every bucket the change does not
+ * touch with the old one. A write therefore costs the size of the buckets it touches plus one
+ * reference per bucket, not the number of events stored.
+ */
+final class EventTimeline {
+  private static final int BUCKET_MINUTES = 60;
+
+  static final EventTimeline EMPTY = new EventTimeline(new int[0], new Event[0][], 0);
+
+  // Bucket keys in ascending order, and the events of each, sorted by start time.
+  private final int[] keys;
+  private final Event[][] buckets;
+  private final int size;
+
+  private EventTimeline(int[] keys, Event[][] buckets, int size) {
+    this.keys = keys;
+    this.buckets = buckets;
+    this.size = size;
+  }
+
+  /** Returns the number of events. */
+  int size() {
+    return size;
+  }
+
+  /** Returns every event in a new list, sorted by start time. */
+  List<Event> toList() {
+    List<Event> events = new ArrayList<>(size);
+    for (Event[] bucket : buckets) {
+      events.addAll(Arrays.asList(bucket));
+    }
+    return events;
+  }
+
+  /**
+   * Returns the timeline with {@code sortedBatch} added. Each event goes after the stored events
+   * that start at or before it.
+   */
+  EventTimeline add(List<Event> sortedBatch) {
+    if (sortedBatch.isEmpty()) {
+      return this;
+    }
+
+    int[] newKeys = new int[keys.length + sortedBatch.size()];
+    Event[][] newBuckets = new Event[newKeys.length][];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (j < sortedBatch.size()) {
+      int key = keyOf(sortedBatch.get(j));
+      // Buckets before the batch's next one are shared as they are.
+      while (i < keys.length && keys[i] < key) {
+        newKeys[count] = keys[i];
+        newBuckets[count++] = buckets[i++];
+      }
+      int end = j;
+      while (end < sortedBatch.size() && keyOf(sortedBatch.get(end)) == key) {
+        end++;
+      }
+      Event[] stored = i < keys.length && keys[i] == key ? buckets[i++] : new Event[0];
+      newKeys[count] = key;
+      newBuckets[count++] = merge(stored, sortedBatch.subList(j, end));
+      j = end;
+    }
+    while (i < keys.length) {
+      newKeys[count] = keys[i];
+      newBuckets[count++] = buckets[i++];
+    }
+    return new EventTimeline(
+        Arrays.copyOf(newKeys, count), Arrays.copyOf(newBuckets, count), size + sortedBatch.size());
+  }
+
+  /**
+   * Returns the timeline without one stored event equal to each of {@code events}, adding the
+   * events that really were removed to {@code removed} in start order. Only the buckets the events
+   * would be in are looked at.
+   */
+  EventTimeline remove(List<Event> events, List<Event> removed) {
+    Map<Integer, Map<Event, Integer>> toRemoveByKey = new HashMap<>();
+    for (Event event : events) {
+      toRemoveByKey
+          .computeIfAbsent(keyOf(event), key -> new HashMap<>())
+          .merge(event, 1, Integer::sum);
+    }
+    List<Integer> touched = new ArrayList<>(toRemoveByKey.keySet());
+    Collections.sort(touched);
+
+    int[] newKeys = keys.clone();
+    Event[][] newBuckets = buckets.clone();
+    boolean emptied = false;
+    int newSize = size;
+    for (int key : touched) {
+      int index = Arrays.binarySearch(keys, key);
+      if (index < 0) {
+        continue;
+      }
+      Map<Event, Integer> toRemove = toRemoveByKey.get(key);
+      List<Event> remaining = new ArrayList<>(buckets[index].length);
+      for (Event event : buckets[index]) {
+        Integer count = toRemove.get(event);
+        if (count == null) {
+          remaining.add(event);
+          continue;
+        }
+        if (count == 1) {
+          toRemove.remove(event);
+        } else {
+          toRemove.put(event, count - 1);
+        }
+        removed.add(event);
+      }
+      newSize -= buckets[index].length - remaining.size();
+      newBuckets[index] = remaining.toArray(new Event[0]);
+      emptied |= remaining.isEmpty();
+    }
+    if (newSize == size) {
+      return this;
+    }
+    if (!emptied) {
+      return new EventTimeline(newKeys, newBuckets, newSize);
+    }
+
+    // Drop the buckets that were emptied.
+    int count = 0;
+    for (int i = 0; i < newKeys.length; i++) {
+      if (newBuckets[i].length > 0) {
+        newKeys[count] = newKeys[i];
+        newBuckets[count++] = newBuckets[i];
+      }
+    }
+    return new EventTimeline(
+        Arrays.copyOf(newKeys, count), Arrays.copyOf(newBuckets, count), newSize);
+  }
+
+  /** Merges sorted events into a sorted bucket, keeping stored events first on ties. */
+  private static Event[] merge(Event[] stored, List<Event> sortedEvents) {
+    Event[] merged = new Event[stored.length + sortedEvents.size()];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < stored.length && j < sortedEvents.size()) {
+      if (Event.ORDER_BY_START.compare(sortedEvents.get(j), stored[i]) < 0) {
+        merged[k++] = sortedEvents.get(j++);
+      } else {
+        merged[k++] = stored[i++];
+      }
+    }
+    while (i < stored.length) {
+      merged[k++] = stored[i++];
+    }
+    while (j < sortedEvents.size()) {
+      merged[k++] = sortedEvents.get(j++);
+    }
+    return merged;
+  }
+
+  private static int keyOf(Event event) {
+    return Math.floorDiv(event.getWhen().start(), BUCKET_MINUTES);
+  }
+}
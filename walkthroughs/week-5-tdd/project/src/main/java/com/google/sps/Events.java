@@ -202,6 +202,45 @@ public final class Events {
         Arrays.asList(PERSON_LIAM)),
   };
 
+  /** The same events, kept sorted by start time for queries. */
+  public static final EventStore store = new EventStore(Arrays.asList(events));
+
+  /** The rooms that events and meeting requests can book, by name. */
+  public static final ResourceCatalog rooms =
+      new ResourceCatalog(
+          Arrays.asList(
+              new Resource("Room Acorn", 4, Arrays.asList("whiteboard")),
+              new Resource("Room Birch", 8, Arrays.asList("projector", "whiteboard")),
+              new Resource("Room Cedar", 12, Arrays.asList("projector", "video conference")),
+              new Resource("Room Douglas", 40, Arrays.asList("projector", "video conference"))));
+
+  /** The groups and distribution lists that meeting requests can invite. */
+  public static final GroupDirectory groups = new GroupDirectory();
+
+  /** How far ahead searches over many days look. */
+  public static final int HORIZON_DAYS = 31;
+
+  /** Everyone's free time over the next {@code HORIZON_DAYS} days, kept in step with the store. */
+  public static final AvailabilityPyramid pyramid = new AvailabilityPyramid(HORIZON_DAYS);
+
+  static {
+    store.addListener(pyramid);
+    groups.setMembers(
+        "hiring-committee", Arrays.asList(PERSON_ISABELLA, PERSON_JAMES, PERSON_OLIVIA));
+    groups.setMembers("team-outing", Arrays.asList(PERSON_JAMES, PERSON_OLIVER, PERSON_OLIVIA));
+    groups.setMembers("partners", Arrays.asList(PERSON_AMELIA, PERSON_EMMA));
+    groups.setMembers(
+        "all-staff",
+        Arrays.asList(
+            "hiring-committee",
+            "team-outing",
+            "partners",
+            PERSON_AVA,
+            PERSON_LIAM,
+            PERSON_LOGAN,
+            PERSON_NOAH));
+  }
+
   private Events() {
     // Disallow instances.
   }
@@ -0,0 +1,225 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Why a meeting cannot happen at certain times: the day split into blocked segments, each with the
+ * attendees who are busy throughout it, and the attendees ranked by how much time would open up
+ * without them.
+ *
+ * <p>Everything comes from one sweep over the start and end of every attendee's busy times, so
+ * nobody has to re-run the query with attendees left out one at a time. Removing an attendee frees
+ * exactly the segments in which they are the only blocker, so that is the time they are ranked by.
+ */
+public final class Explanation {
+  private static final int END_OF_DAY = TimeRange.getTimeInMinutes(23, 59);
+
+  /** A stretch of time during which the same attendees are busy. */
+  public static final class Segment {
+    private final TimeRange when;
+    private final int[] blockers;
+
+    Segment(TimeRange when, int[] blockers) {
+      this.when = when;
+      this.blockers = blockers;
+    }
+
+    /** Returns when the segment is. */
+    public TimeRange getWhen() {
+      return when;
+    }
+
+    /**
+     * Returns the indices, into {@link Explanation#getAttendees()}, of the attendees who are busy
+     * throughout the segment, in ascending order.
+     */
+    public int[] getBlockers() {
+      return blockers.clone();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Segment
+          && when.equals(((Segment) other).when)
+          && Arrays.equals(blockers, ((Segment) other).blockers);
+    }
+
+    @Override
+    public int hashCode() {
+      return when.hashCode() ^ Arrays.hashCode(blockers);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Segment: %s blocked by %s", when, Arrays.toString(blockers));
+    }
+  }
+
+  /** How many minutes would open up if one attendee were left out. */
+  public static final class Blocker {
+    private final String attendee;
+    private final int minutesFreed;
+
+    Blocker(String attendee, int minutesFreed) {
+      this.attendee = attendee;
+      this.minutesFreed = minutesFreed;
+    }
+
+    /** Returns the attendee. */
+    public String getAttendee() {
+      return attendee;
+    }
+
+    /** Returns the minutes during which this attendee is the only one busy. */
+    public int getMinutesFreed() {
+      return minutesFreed;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Blocker: %s frees %d minutes", attendee, minutesFreed);
+    }
+  }
+
+  private static final Comparator<Blocker> ORDER_BY_MINUTES_FREED_DESC =
+      new Comparator<Blocker>() {
+        @Override
+        public int compare(Blocker a, Blocker b) {
+          return Integer.compare(b.minutesFreed, a.minutesFreed);
+        }
+      };
+
+  private final List<String> attendees;
+  private final List<Segment> segments;
+  private final List<Blocker> ranking;
+
+  private Explanation(List<String> attendees, List<Segment> segments, List<Blocker> ranking) {
+    this.attendees = attendees;
+    this.segments = segments;
+    this.ranking = ranking;
+  }
+
+  /**
+   * Explains when {@code attendees} cannot meet, using the busy times in {@code source}. Repeated
+   * attendees are only counted once.
+   */
+  public static Explanation of(BusyTimeSource source, Collection<String> attendees) {
+    List<String> ids = new ArrayList<>(new LinkedHashSet<>(attendees));
+
+    // Each boundary is packed into a long: the time, then whether it is a start, then the attendee.
+    // Sorting the longs orders boundaries by time, with ends before starts at the same minute.
+    List<Long> boundaries = new ArrayList<>();
+    for (int id = 0; id < ids.size(); id++) {
+      Iterator<TimeRange> busyTimes = source.getBusyTimes(Collections.singleton(ids.get(id)));
+      while (busyTimes.hasNext()) {
+        TimeRange busy = busyTimes.next();
+        int start = Math.max(busy.start(), TimeRange.START_OF_DAY);
+        int end = Math.min(busy.end(), END_OF_DAY + 1);
+        if (start < end) {
+          boundaries.add(pack(start, /*isStart=*/ true, id));
+          boundaries.add(pack(end, /*isStart=*/ false, id));
+        }
+      }
+    }
+    long[] sorted = new long[boundaries.size()];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = boundaries.get(i);
+    }
+    Arrays.sort(sorted);
+
+    // An attendee's own busy times may overlap, so count how many of them are open.
+    int[] open = new int[ids.size()];
+    BitSet busy = new BitSet(ids.size());
+    int[] minutesFreed = new int[ids.size()];
+    List<Segment> segments = new ArrayList<>();
+    int previous = TimeRange.START_OF_DAY;
+    int i = 0;
+    while (i < sorted.length) {
+      int time = (int) (sorted[i] >>> 32);
+      if (time > previous && !busy.isEmpty()) {
+        addSegment(segments, previous, time, busy);
+        if (busy.cardinality() == 1) {
+          minutesFreed[busy.nextSetBit(0)] += time - previous;
+        }
+      }
+
+      // Apply every boundary at this minute before looking at the next segment.
+      for (; i < sorted.length && (int) (sorted[i] >>> 32) == time; i++) {
+        int id = (int) (sorted[i] & Integer.MAX_VALUE);
+        boolean isStart = (sorted[i] & (1L << 31)) != 0;
+        open[id] += isStart ? 1 : -1;
+        busy.set(id, open[id] > 0);
+      }
+      previous = time;
+    }
+
+    List<Blocker> ranking = new ArrayList<>();
+    for (int id = 0; id < ids.size(); id++) {
+      if (minutesFreed[id] > 0) {
+        ranking.add(new Blocker(ids.get(id), minutesFreed[id]));
+      }
+    }
+    // The sort is stable, so attendees who free the same time stay in the order they were given.
+    Collections.sort(ranking, ORDER_BY_MINUTES_FREED_DESC);
+    return new Explanation(ids, segments, ranking);
+  }
+
+  /** Returns the attendees, without repeats, that segment blockers refer to by index. */
+  public List<String> getAttendees() {
+    return Collections.unmodifiableList(attendees);
+  }
+
+  /** Returns a read-only list of the blocked segments, in time order. Free time is left out. */
+  public List<Segment> getSegments() {
+    return Collections.unmodifiableList(segments);
+  }
+
+  /**
+   * Returns a read-only list of the attendees who are the only one busy at some point, the ones
+   * whose removal would free the most time first.
+   */
+  public List<Blocker> getRanking() {
+    return Collections.unmodifiableList(ranking);
+  }
+
+  /** Adds {@code [start, end)} blocked by {@code busy}, extending the last segment if it can. */
+  private static void addSegment(List<Segment> segments, int start, int end, BitSet busy) {
+    int[] blockers = busy.stream().toArray();
+    if (!segments.isEmpty()) {
+      Segment last = segments.get(segments.size() - 1);
+      if (last.when.end() == start && Arrays.equals(last.blockers, blockers)) {
+        segments.set(
+            segments.size() - 1,
+            new Segment(TimeRange.fromStartEnd(last.when.start(), end, false), blockers));
+        return;
+      }
+    }
+    segments.add(new Segment(TimeRange.fromStartEnd(start, end, false), blockers));
+  }
+
+  private static long pack(int time, boolean isStart, int id) {
+    return ((long) time << 32) | (isStart ? 1L << 31 : 0) | id;
+  }
+}
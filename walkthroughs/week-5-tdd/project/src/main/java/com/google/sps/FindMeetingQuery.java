@@ -14,93 +14,681 @@
 
 package com.google.sps;
 
+import com.google.sps.trace.QueryTrace;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 /** Lists possible meeting times based on meeting information it takes in. */
 public final class FindMeetingQuery {
   private static final int END_OF_DAY = TimeRange.getTimeInMinutes(23, 59);
+  // The minutes of the day, [0, DAY_MINUTES). Busy times outside them are cut off by every plan.
+  private static final int DAY_MINUTES = END_OF_DAY + 1;
 
-  private static final Comparator<Event> ORDER_BY_START_ASC =
-      new Comparator<Event>() {
+  private static final Comparator<RoomSlot> ORDER_SLOTS_BY_START_ASC =
+      new Comparator<RoomSlot>() {
         @Override
-        public int compare(Event a, Event b) {
+        public int compare(RoomSlot a, RoomSlot b) {
           return Long.compare(a.getWhen().start(), b.getWhen().start());
         }
       };
 
+  private final QueryPlanner planner = new QueryPlanner();
+
   /**
    * Returns a list of time periods in which the meeting, specified by request, could happen. If one
    * or more time slots exists so that both mandatory and optional attendees can attend, it returns
    * those time slots. Otherwise, it returns the time slots that fit just the mandatory attendees.
    *
+   * <p>If the request sets an alignment, each returned range is instead one concrete, bookable
+   * meeting: it starts on an aligned minute and lasts exactly the requested duration.
+   *
+   * <p>If the request only asks for the first available time, at most one range is returned: the
+   * earliest of the ones that would otherwise be returned.
+   *
+   * <p>If the request's deadline passes, the query stops and returns the times it has found so far,
+   * and the deadline reports {@link Deadline#isReached}. Every time returned still works.
+   *
    * @param eventsCollection the events we know about
    * @param request information about the meeting, including attendees, optional attendees, and how
    *     long it needs to be
    */
   public Collection<TimeRange> query(Collection<Event> events, MeetingRequest request) {
+    return query(new EventStore(events).snapshot(), request);
+  }
+
+  /**
+   * Same as {@link #query(Collection, MeetingRequest)}, but asks {@code source} when the attendees
+   * are busy. An {@link EventStore} answers from busy blocks it compacted as events were added, so
+   * no sorting or merging of individual events is needed. Pass an {@link EventStore.Snapshot} to
+   * make sure every pass of the query reads the same version of the store.
+   */
+  public Collection<TimeRange> query(BusyTimeSource source, MeetingRequest request) {
     Collection<TimeRange> withOptionalAttendees =
-        getMeetingTimes(events, request, /*includeOptionalAttendees=*/true);
+        getMeetingTimes(source, request, /*includeOptionalAttendees=*/ true);
 
     // Special case: if no mandatory attendees and optional attendees' schedules cannot fit in a
-    // meeting, no meeting times are possible.
-    if(!withOptionalAttendees.isEmpty() || request.getAttendees().isEmpty()){
+    // meeting, no meeting times are possible. Out of time, there is no second pass either.
+    if (!withOptionalAttendees.isEmpty()
+        || request.getAttendees().isEmpty()
+        || request.getDeadline().isReached()) {
       return withOptionalAttendees;
     }
-    return getMeetingTimes(events, request, /*includeOptionalAttendees=*/false);
+    return getMeetingTimes(source, request, /*includeOptionalAttendees=*/ false);
   }
 
-  private Collection<TimeRange> getMeetingTimes(
-      Collection<Event> eventsCollection,
+  /**
+   * Returns the (time, room) pairs in which the meeting, specified by request, could happen. Rooms
+   * are taken from {@code catalog} and must suit the request's room capacity and features. As with
+   * {@code query}, optional attendees are only ignored if no slot fits them. If the request only
+   * asks for the first available time, at most one slot is returned.
+   *
+   * @param events the events we know about, including the ones that book rooms
+   * @param request information about the meeting, including the room it needs
+   * @param catalog the rooms that may be booked
+   */
+  public Collection<RoomSlot> queryWithRooms(
+      Collection<Event> events, MeetingRequest request, ResourceCatalog catalog) {
+    return queryWithRooms(new EventStore(events).snapshot(), request, catalog);
+  }
+
+  /**
+   * Same as {@link #queryWithRooms(Collection, MeetingRequest, ResourceCatalog)}, but asks {@code
+   * source} when the attendees and rooms are busy.
+   */
+  public Collection<RoomSlot> queryWithRooms(
+      BusyTimeSource source, MeetingRequest request, ResourceCatalog catalog) {
+    List<Resource> rooms = catalog.find(request.getRoomCapacity(), request.getRoomFeatures());
+    Collection<RoomSlot> withOptionalAttendees =
+        getRoomSlots(source, request, rooms, /*includeOptionalAttendees=*/ true);
+    if (!withOptionalAttendees.isEmpty()
+        || request.getAttendees().isEmpty()
+        || request.getDeadline().isReached()) {
+      return withOptionalAttendees;
+    }
+    return getRoomSlots(source, request, rooms, /*includeOptionalAttendees=*/ false);
+  }
+
+  /**
+   * Returns the times, measured from the start of each occurrence, at which a meeting repeating as
+   * {@code recurrence} works in at least {@code recurrence.getRequired()} occurrences. Optional
+   * attendees and alignment are treated as in {@link #query(BusyTimeSource, MeetingRequest)}.
+   *
+   * <p>Every occurrence's busy time is folded onto one period in a single pass: a difference array
+   * over the period counts, for each start minute, the occurrences in which a meeting starting then
+   * would run into someone's busy time. Each busy time is stretched back by the meeting's duration
+   * less a minute before it is folded, so it counts against every start whose meeting it overlaps.
+   * This costs {@code O(busy times + period)} however many occurrences there are.
+   */
+  public Collection<TimeRange> querySeries(
+      BusyTimeSource source, MeetingRequest request, Recurrence recurrence) {
+    Collection<TimeRange> withOptionalAttendees =
+        getSeriesTimes(source, request, recurrence, /*includeOptionalAttendees=*/ true);
+    if (!withOptionalAttendees.isEmpty()
+        || request.getAttendees().isEmpty()
+        || request.getDeadline().isReached()) {
+      return withOptionalAttendees;
+    }
+    return getSeriesTimes(source, request, recurrence, /*includeOptionalAttendees=*/ false);
+  }
+
+  /**
+   * Returns the times, over every day {@code pyramid} covers, during which the meeting could
+   * happen. Optional attendees, alignment and first availability are treated as in {@link
+   * #query(BusyTimeSource, MeetingRequest)}; padding is not applied.
+   *
+   * <p>The pyramid is searched from whole days down, and only the blocks that could hold the
+   * meeting are looked at minute by minute, so booked-up days cost next to nothing. If the
+   * request's deadline passes, the times found so far are returned.
+   */
+  public Collection<TimeRange> queryHorizon(AvailabilityPyramid pyramid, MeetingRequest request) {
+    Collection<TimeRange> withOptionalAttendees =
+        getHorizonTimes(pyramid, request, /*includeOptionalAttendees=*/ true);
+    if (!withOptionalAttendees.isEmpty()
+        || request.getAttendees().isEmpty()
+        || request.getDeadline().isReached()) {
+      return withOptionalAttendees;
+    }
+    return getHorizonTimes(pyramid, request, /*includeOptionalAttendees=*/ false);
+  }
+
+  private static Collection<TimeRange> getHorizonTimes(
+      AvailabilityPyramid pyramid, MeetingRequest request, boolean includeOptionalAttendees) {
+    List<TimeRange> free =
+        pyramid.find(
+            getAttendees(request, includeOptionalAttendees),
+            request.getDuration(),
+            request.getDeadline());
+    if (request.isFirstAvailable()) {
+      return firstAlignedSlot(free.iterator(), request);
+    }
+    return alignIfRequested(free, request);
+  }
+
+  private Collection<TimeRange> getSeriesTimes(
+      BusyTimeSource source,
       MeetingRequest request,
+      Recurrence recurrence,
       boolean includeOptionalAttendees) {
-    HashSet<String> attendees = new HashSet<String>(request.getAttendees());
-    if (includeOptionalAttendees) {
-      attendees.addAll(request.getOptionalAttendees());
+    int period = recurrence.getPeriod();
+    int horizon = period * recurrence.getOccurrences();
+    int[] busyDeltas = new int[period + 1];
+    // A meeting starting up to this many minutes before a busy time runs into it.
+    int reach = (int) Math.max(request.getDuration() - 1, 0);
+
+    // Join overlapping busy times first, so that no start counts twice for one occurrence.
+    Iterator<TimeRange> busyTimes =
+        getPaddedBusyTimes(source, getAttendees(request, includeOptionalAttendees), request);
+    Deadline deadline = request.getDeadline();
+    int start = 0;
+    int end = 0;
+    while (busyTimes.hasNext()) {
+      if (deadline.passed()) {
+        // The counts so far cover only part of the horizon, so no time is known to work.
+        return new ArrayList<TimeRange>();
+      }
+      TimeRange busy = busyTimes.next();
+      int busyStart = Math.max(busy.start(), 0);
+      int busyEnd = Math.min(busy.end(), horizon);
+      if (busyStart >= busyEnd) {
+        continue;
+      }
+      busyStart = Math.max(busyStart - reach, 0);
+      if (busyStart <= end && end > start) {
+        end = Math.max(end, busyEnd);
+        continue;
+      }
+      fold(busyDeltas, period, start, end);
+      start = busyStart;
+      end = busyEnd;
     }
-    ArrayList<Event> events = getRelevantEvents(attendees, new ArrayList<Event>(eventsCollection));
+    fold(busyDeltas, period, start, end);
+
+    // Each run of starts that work gives the range from its first start to the end of the meeting
+    // at its last one.
     List<TimeRange> possibleMeetingTimes = new ArrayList<TimeRange>();
+    int maxBusy = recurrence.getOccurrences() - recurrence.getRequired();
+    long lastStart = period - request.getDuration();
+    int busy = 0;
+    int runStart = -1;
+    for (int minute = 0; minute <= period; minute++) {
+      busy += busyDeltas[minute];
+      boolean works = minute <= lastStart && minute < period && busy <= maxBusy;
+      if (works && runStart < 0) {
+        runStart = minute;
+      } else if (!works && runStart >= 0) {
+        addIfLongEnough(
+            TimeRange.fromStartEnd(runStart, minute + reach, false),
+            possibleMeetingTimes,
+            request.getDuration());
+        runStart = -1;
+      }
+    }
+    return alignIfRequested(possibleMeetingTimes, request);
+  }
 
-    // Need to check this so we don't access out of bounds when we add first gap.
-    if (events.isEmpty()) {
-      addIfLongEnough(
-          TimeRange.fromStartEnd(0, END_OF_DAY, true), possibleMeetingTimes, request.getDuration());
-      return possibleMeetingTimes;
-    }
-    Collections.sort(events, ORDER_BY_START_ASC);
-
-    // Add first gap.
-    addIfLongEnough(
-        TimeRange.fromStartEnd(0, events.get(0).getWhen().start(), false),
-        possibleMeetingTimes,
-        request.getDuration());
-    int end = events.get(0).getWhen().end();
-    for (Event event : events) {
-      // event can be merged with current time range
-      if (event.getWhen().start() <= end) {
-        end = Math.max(end, event.getWhen().end());
+  /** Adds {@code [start, end)}, split at occurrence boundaries, to the period's busy counts. */
+  private static void fold(int[] busyDeltas, int period, int start, int end) {
+    while (start < end) {
+      int occurrenceStart = start - start % period;
+      int stop = Math.min(end, occurrenceStart + period);
+      busyDeltas[start - occurrenceStart]++;
+      busyDeltas[stop - occurrenceStart]--;
+      start = stop;
+    }
+  }
+
+  private Collection<TimeRange> getMeetingTimes(
+      BusyTimeSource source, MeetingRequest request, boolean includeOptionalAttendees) {
+    HashSet<String> attendees = getAttendees(request, includeOptionalAttendees);
+    long duration = request.getDuration();
+
+    // The bitmap reads each attendee's busy list on its own as it goes.
+    QueryTrace.Span lookup = QueryTrace.begin(QueryTrace.Phase.INDEX_LOOKUP);
+    QueryPlanner.Plan plan = planner.choose(source, attendees, request);
+    Gaps gaps =
+        plan == QueryPlanner.Plan.BITMAP
+            ? null
+            : new Gaps(getPaddedBusyTimes(source, attendees, request), duration, request);
+    lookup.setAttendees(attendees.size());
+    lookup.end();
+
+    QueryTrace.Span sweep = QueryTrace.begin(QueryTrace.Phase.SWEEP);
+    List<TimeRange> times;
+    switch (plan) {
+      case FIRST_FIT:
+        times = firstAlignedSlot(gaps, request);
+        break;
+      case BITMAP:
+        times = alignIfRequested(findGapsWithBitmap(source, attendees, request, sweep), request);
+        break;
+      default:
+        times = alignIfRequested(drain(gaps), request);
+    }
+    if (gaps != null) {
+      sweep.addEventsScanned(gaps.scanned);
+    }
+    sweep.setAttendees(attendees.size());
+    sweep.setResults(times.size());
+    sweep.end();
+    return times;
+  }
+
+  /**
+   * Returns the first slot in {@code gaps} that suits {@code request}, or nothing if there is none.
+   * Gaps, and the busy times behind them, are only read up to the one holding that slot, so the
+   * cost depends on how early the slot is rather than on how busy the rest of the day is.
+   */
+  private static List<TimeRange> firstAlignedSlot(
+      Iterator<TimeRange> gaps, MeetingRequest request) {
+    while (gaps.hasNext()) {
+      List<TimeRange> slots = alignIfRequested(Arrays.asList(gaps.next()), request);
+      if (!slots.isEmpty()) {
+        return new ArrayList<TimeRange>(slots.subList(0, 1));
+      }
+    }
+    return new ArrayList<TimeRange>();
+  }
+
+  /**
+   * Finds the attendees' free time once, then intersects it with the free time of each room. Rooms
+   * are attendees of the events that book them, so their busy time comes from the same source.
+   */
+  private Collection<RoomSlot> getRoomSlots(
+      BusyTimeSource source,
+      MeetingRequest request,
+      List<Resource> rooms,
+      boolean includeOptionalAttendees) {
+    HashSet<String> attendees = getAttendees(request, includeOptionalAttendees);
+    long duration = request.getDuration();
+    List<TimeRange> freeTimes =
+        drain(new Gaps(getPaddedBusyTimes(source, attendees, request), duration, request));
+
+    List<RoomSlot> slots = new ArrayList<RoomSlot>();
+    for (Resource room : rooms) {
+      if (request.getDeadline().passed()) {
+        // Keep the rooms already checked; their slots are complete.
+        break;
+      }
+      List<TimeRange> roomFreeTimes =
+          drain(
+              new Gaps(
+                  source.getBusyTimes(Collections.singleton(room.getName())), duration, request));
+      List<TimeRange> overlaps = intersect(freeTimes, roomFreeTimes, duration);
+      if (request.isFirstAvailable()) {
+        // Only each room's earliest slot can be the earliest overall.
+        List<TimeRange> first = firstAlignedSlot(overlaps.iterator(), request);
+        if (!first.isEmpty()) {
+          slots.add(new RoomSlot(first.get(0), room));
+        }
         continue;
       }
-      // Add the time range we were tracking, start a new one from event.
-      addIfLongEnough(
-          TimeRange.fromStartEnd(end, event.getWhen().start(), false),
-          possibleMeetingTimes,
-          request.getDuration());
-      end = event.getWhen().end();
+      for (TimeRange range : alignIfRequested(overlaps, request)) {
+        slots.add(new RoomSlot(range, room));
+      }
+    }
+    // The sort is stable, so rooms free at the same time stay in catalogue order.
+    Collections.sort(slots, ORDER_SLOTS_BY_START_ASC);
+    if (request.isFirstAvailable() && slots.size() > 1) {
+      return new ArrayList<RoomSlot>(slots.subList(0, 1));
+    }
+    return slots;
+  }
+
+  /**
+   * Returns the busy times of {@code attendees}, each widened by the padding {@code request} asks
+   * for around that attendee's meetings. Attendees with the same padding are read together and
+   * their busy times widened as they are read, so the sweep still reads each busy time once and
+   * nothing is copied.
+   */
+  private static Iterator<TimeRange> getPaddedBusyTimes(
+      BusyTimeSource source, Collection<String> attendees, MeetingRequest request) {
+    if (!request.hasPadding()) {
+      return source.getBusyTimes(attendees);
+    }
+
+    Map<Padding, List<String>> attendeesByPadding = new HashMap<>();
+    for (String attendee : attendees) {
+      Padding padding = request.getPadding(attendee);
+      List<String> group = attendeesByPadding.get(padding);
+      if (group == null) {
+        group = new ArrayList<String>();
+        attendeesByPadding.put(padding, group);
+      }
+      group.add(attendee);
+    }
+
+    List<Iterator<TimeRange>> busyTimes = new ArrayList<>(attendeesByPadding.size());
+    for (Map.Entry<Padding, List<String>> entry : attendeesByPadding.entrySet()) {
+      busyTimes.add(new Widened(source.getBusyTimes(entry.getValue()), entry.getKey()));
+    }
+    return busyTimes.size() == 1 ? busyTimes.get(0) : new MergedRanges(busyTimes);
+  }
+
+  /**
+   * Widens each busy time by a padding as it is read. Every range moves by the same amount, so the
+   * ranges stay sorted by start time.
+   */
+  private static final class Widened implements Iterator<TimeRange> {
+    private final Iterator<TimeRange> busyTimes;
+    private final Padding padding;
+
+    Widened(Iterator<TimeRange> busyTimes, Padding padding) {
+      this.busyTimes = busyTimes;
+      this.padding = padding;
     }
 
-    // Add the last one we were tracking.
-    addIfLongEnough(
-        TimeRange.fromStartEnd(end, END_OF_DAY, true), possibleMeetingTimes, request.getDuration());
+    @Override
+    public boolean hasNext() {
+      return busyTimes.hasNext();
+    }
+
+    @Override
+    public TimeRange next() {
+      return padding.widen(busyTimes.next());
+    }
+  }
+
+  /** Merges several iterators of ranges sorted by start time into one, still sorted. */
+  private static final class MergedRanges implements Iterator<TimeRange> {
+    private final PriorityQueue<Head> heads =
+        new PriorityQueue<>(
+            new Comparator<Head>() {
+              @Override
+              public int compare(Head a, Head b) {
+                return Integer.compare(a.range.start(), b.range.start());
+              }
+            });
+
+    MergedRanges(List<Iterator<TimeRange>> sources) {
+      for (Iterator<TimeRange> source : sources) {
+        if (source.hasNext()) {
+          heads.add(new Head(source.next(), source));
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override
+    public TimeRange next() {
+      Head head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      TimeRange range = head.range;
+      if (head.rest.hasNext()) {
+        head.range = head.rest.next();
+        heads.add(head);
+      }
+      return range;
+    }
+
+    private static final class Head {
+      private TimeRange range;
+      private final Iterator<TimeRange> rest;
+
+      Head(TimeRange range, Iterator<TimeRange> rest) {
+        this.range = range;
+        this.rest = rest;
+      }
+    }
+  }
+
+  /** Returns the remaining ranges of {@code ranges} as a list. */
+  private static List<TimeRange> drain(Iterator<TimeRange> ranges) {
+    List<TimeRange> list = new ArrayList<TimeRange>();
+    while (ranges.hasNext()) {
+      list.add(ranges.next());
+    }
+    return list;
+  }
+
+  /**
+   * Iterates over the gaps between busy times that are at least as long as a meeting, in order.
+   * Busy times are only read as far as needed to find the next gap, so a caller that stops early
+   * never reads the rest of the day. If the request's deadline passes, the iteration ends after the
+   * gaps found so far, each of which is still a whole gap. Busy times are cut to the day the same
+   * way {@link #findGapsWithBitmap} cuts them, so events running into other days do not move the
+   * gaps past its end.
+   */
+  private static final class Gaps implements Iterator<TimeRange> {
+    private final Iterator<TimeRange> busyTimes;
+    private final long meetingDuration;
+    private final Deadline deadline;
+
+    // How many busy times have been read, for tracing.
+    private long scanned;
+
+    // Where the busy time tracked so far ends, i.e. where the next gap starts.
+    private int end;
+    private boolean started;
+    private boolean finished;
+    private TimeRange next;
+
+    /**
+     * @param busyTimes the busy time ranges, sorted by start time. They may overlap.
+     * @param meetingDuration the duration of meeting to be scheduled
+     * @param request the request whose deadline to check
+     */
+    Gaps(Iterator<TimeRange> busyTimes, long meetingDuration, MeetingRequest request) {
+      this.busyTimes = busyTimes;
+      this.meetingDuration = meetingDuration;
+      this.deadline = request.getDeadline();
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && !finished) {
+        if (deadline.passed()) {
+          finished = true;
+          break;
+        }
+        TimeRange busy = nextBusyToday();
+        TimeRange gap;
+        if (!started) {
+          started = true;
+          // Need to check this so we don't read past the end when we add first gap.
+          if (busy == null) {
+            finished = true;
+            gap = TimeRange.fromStartEnd(0, END_OF_DAY, true);
+          } else {
+            gap = TimeRange.fromStartEnd(0, busy.start(), false);
+            end = busy.end();
+          }
+        } else if (busy != null) {
+          // busy can be merged with current time range
+          if (busy.start() <= end) {
+            end = Math.max(end, busy.end());
+            continue;
+          }
+          // The time range we were tracking ends here; start a new one from busy.
+          gap = TimeRange.fromStartEnd(end, busy.start(), false);
+          end = busy.end();
+        } else {
+          // The last one we were tracking.
+          finished = true;
+          gap = TimeRange.fromStartEnd(end, END_OF_DAY, true);
+        }
+
+        if (gap.duration() >= meetingDuration) {
+          next = gap;
+        }
+      }
+      return next != null;
+    }
+
+    /**
+     * Returns the next busy time that falls within the day, cut to it, or {@code null} if there are
+     * no more. Busy times come in start order, so reading stops at the first one after the day.
+     */
+    private TimeRange nextBusyToday() {
+      while (busyTimes.hasNext()) {
+        TimeRange busy = busyTimes.next();
+        scanned++;
+        if (busy.start() >= DAY_MINUTES) {
+          return null;
+        }
+        int start = Math.max(busy.start(), 0);
+        int end = Math.min(busy.end(), DAY_MINUTES);
+        if (start < end) {
+          return TimeRange.fromStartEnd(start, end, false);
+        } else if (busy.duration() == 0) {
+          return TimeRange.fromStartEnd(start, start, false);
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public TimeRange next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      TimeRange gap = next;
+      next = null;
+      return gap;
+    }
+  }
+
+  /**
+   * Returns the same gaps as {@link Gaps} would, found by marking every busy minute of the day in a
+   * bit set. Each attendee's busy times are read on their own, so nothing has to be merged. The
+   * busy times read are counted on {@code span}.
+   */
+  private static List<TimeRange> findGapsWithBitmap(
+      BusyTimeSource source,
+      Collection<String> attendees,
+      MeetingRequest request,
+      QueryTrace.Span span) {
+    long meetingDuration = request.getDuration();
+    int minutes = DAY_MINUTES;
+    BitSet busy = new BitSet(minutes);
+    // Empty busy times mark no minutes, but they still split a gap in two, as they do in the sweep.
+    BitSet cuts = new BitSet(minutes);
+    Deadline deadline = request.getDeadline();
+    long scanned = 0;
+    for (String attendee : attendees) {
+      Iterator<TimeRange> busyTimes = source.getBusyTimes(Collections.singleton(attendee));
+      Padding padding = request.getPadding(attendee);
+      while (busyTimes.hasNext()) {
+        if (deadline.passed()) {
+          // Some attendees' busy minutes are not marked yet, so no gap is known to be free.
+          span.addEventsScanned(scanned);
+          return new ArrayList<TimeRange>();
+        }
+        TimeRange range = padding.widen(busyTimes.next());
+        scanned++;
+        int start = Math.max(range.start(), 0);
+        int end = Math.min(range.end(), minutes);
+        if (start < end) {
+          busy.set(start, end);
+        } else if (range.duration() == 0 && start < minutes) {
+          cuts.set(start);
+        }
+      }
+    }
+
+    span.addEventsScanned(scanned);
+
+    List<TimeRange> possibleMeetingTimes = new ArrayList<TimeRange>();
+    for (int start = busy.nextClearBit(0); start < minutes; ) {
+      int end = busy.nextSetBit(start);
+      if (end < 0) {
+        end = minutes;
+      }
+      for (int cut = cuts.nextSetBit(start + 1); cut >= 0 && cut < end; ) {
+        addIfLongEnough(
+            TimeRange.fromStartEnd(start, cut, false), possibleMeetingTimes, meetingDuration);
+        start = cut;
+        cut = cuts.nextSetBit(start + 1);
+      }
+      addIfLongEnough(
+          TimeRange.fromStartEnd(start, end, false), possibleMeetingTimes, meetingDuration);
+      start = busy.nextClearBit(end);
+    }
     return possibleMeetingTimes;
   }
 
+  /**
+   * Returns the overlaps between two sorted lists of disjoint ranges that are at least {@code
+   * meetingDuration} long.
+   */
+  private static List<TimeRange> intersect(
+      List<TimeRange> first, List<TimeRange> second, long meetingDuration) {
+    List<TimeRange> overlaps = new ArrayList<TimeRange>();
+    int i = 0;
+    int j = 0;
+    while (i < first.size() && j < second.size()) {
+      TimeRange a = first.get(i);
+      TimeRange b = second.get(j);
+      int start = Math.max(a.start(), b.start());
+      int end = Math.min(a.end(), b.end());
+      if (start < end) {
+        addIfLongEnough(TimeRange.fromStartEnd(start, end, false), overlaps, meetingDuration);
+      }
+      // Move past whichever range finishes first; it cannot overlap anything further along.
+      if (a.end() < b.end()) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return overlaps;
+  }
+
+  /**
+   * Returns the aligned meeting slots within {@code gaps} if {@code request} asks for aligned start
+   * times, or {@code gaps} unchanged otherwise. Each gap is stepped through directly, so no slot
+   * outside a gap is ever generated.
+   */
+  private static List<TimeRange> alignIfRequested(List<TimeRange> gaps, MeetingRequest request) {
+    int alignment = request.getAlignment();
+    if (alignment <= 0) {
+      return gaps;
+    }
+
+    int step = request.getStep();
+    int duration = (int) request.getDuration();
+    Deadline deadline = request.getDeadline();
+    List<TimeRange> slots = new ArrayList<TimeRange>();
+    for (TimeRange gap : gaps) {
+      // Round the gap start up to the next aligned minute.
+      int start = (gap.start() + alignment - 1) / alignment * alignment;
+      for (; start + duration <= gap.end(); start += step) {
+        if (deadline.passed()) {
+          return slots;
+        }
+        slots.add(TimeRange.fromStartDuration(start, duration));
+      }
+    }
+    return slots;
+  }
+
+  /** Returns the mandatory attendees of {@code request}, plus the optional ones if asked for. */
+  private static HashSet<String> getAttendees(
+      MeetingRequest request, boolean includeOptionalAttendees) {
+    HashSet<String> attendees = new HashSet<String>(request.getAttendees());
+    if (includeOptionalAttendees) {
+      attendees.addAll(request.getOptionalAttendees());
+    }
+    return attendees;
+  }
+
   /**
    * Adds range to ranges if it is long enough to fit in a meeting.
    *
@@ -114,29 +702,4 @@ public final class FindMeetingQuery {
       ranges.add(range);
     }
   }
-
-  /**
-   * Returns only those events that are attended by at least one attendee that is attending the
-   * meeting we are trying to schedule. More intuitively, an event is "relevant" if it is attended
-   * by at least one "relevant" attendee.
-   *
-   * @param requestAttendees the set of attendees attending the meeting ("relevant" people)
-   */
-  private static ArrayList<Event> getRelevantEvents(
-      HashSet<String> relevantAttendees, ArrayList<Event> events) {
-    ArrayList<Event> relevantEvents = new ArrayList<Event>();
-    for (Event event : events) {
-      boolean isRelevant = false;
-      for (String person : event.getAttendees()) {
-        if (relevantAttendees.contains(person)) {
-          isRelevant = true;
-          break;
-        }
-      }
-      if (isRelevant) {
-        relevantEvents.add(event);
-      }
-    }
-    return relevantEvents;
-  }
 }
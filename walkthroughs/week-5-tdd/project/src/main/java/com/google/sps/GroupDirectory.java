@@ -0,0 +1,196 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups and distribution lists that meeting requests can invite, such as "eng-all". A group's
+ * members are people or other groups, so groups form a graph that is expanded to the people in it.
+ *
+ * <p>Expansion is a depth-first walk that remembers the flattened members of every group it
+ * finishes, so shared subgroups are only walked once, and that reports membership cycles. The
+ * flattened members are cached as bit sets over person ids. Changing one group only drops the
+ * cached members of that group and of the groups that contain it.
+ *
+ * <p>The directory is safe to share between threads.
+ */
+public final class GroupDirectory {
+  private final Map<String, List<String>> membersByGroup = new HashMap<>();
+  private final Map<String, Set<String>> parentsByGroup = new HashMap<>();
+  private final Map<String, BitSet> expanded = new HashMap<>();
+  private final Map<String, Integer> personIds = new HashMap<>();
+  private final List<String> people = new ArrayList<>();
+
+  /**
+   * Makes {@code group} a group whose direct members are {@code members}, replacing any members it
+   * had. Members that are themselves groups are expanded when the group is.
+   */
+  public synchronized void setMembers(String group, Collection<String> members) {
+    List<String> previous = membersByGroup.get(group);
+    if (previous != null) {
+      for (String member : previous) {
+        Set<String> parents = parentsByGroup.get(member);
+        if (parents != null) {
+          parents.remove(group);
+        }
+      }
+    }
+
+    List<String> current = new ArrayList<>(new LinkedHashSet<>(members));
+    membersByGroup.put(group, current);
+    for (String member : current) {
+      Set<String> parents = parentsByGroup.get(member);
+      if (parents == null) {
+        parents = new HashSet<>();
+        parentsByGroup.put(member, parents);
+      }
+      parents.add(group);
+    }
+
+    // A name may have been a person in groups expanded earlier, so start from the group itself
+    // even if it is new.
+    invalidate(group);
+  }
+
+  /** Returns true if {@code name} is a group rather than a person. */
+  public synchronized boolean isGroup(String name) {
+    return membersByGroup.containsKey(name);
+  }
+
+  /**
+   * Returns the people in {@code names}: people are kept and groups are replaced by everyone in
+   * them, however deeply nested.
+   *
+   * @throws IllegalStateException if a group contains itself, directly or through subgroups
+   */
+  public synchronized Set<String> expand(Collection<String> names) {
+    BitSet ids = new BitSet();
+    Set<String> result = new LinkedHashSet<>();
+    for (String name : names) {
+      if (membersByGroup.containsKey(name)) {
+        ids.or(expandGroup(name));
+      } else {
+        result.add(name);
+      }
+    }
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      result.add(people.get(id));
+    }
+    return result;
+  }
+
+  /**
+   * Returns a copy of {@code request} in which every invited group has been replaced by its people.
+   * Someone who is both a mandatory attendee and an optional one through a group stays mandatory.
+   */
+  public MeetingRequest expand(MeetingRequest request) {
+    MeetingRequest expandedRequest =
+        request.withAttendees(
+            expand(request.getAttendees()), expand(request.getOptionalAttendees()));
+    for (Map.Entry<String, Padding> entry : request.getAttendeePadding().entrySet()) {
+      // Padding asked for a group applies to everyone in it.
+      for (String attendee : expand(Collections.singleton(entry.getKey()))) {
+        expandedRequest.setAttendeePadding(attendee, entry.getValue());
+      }
+    }
+    return expandedRequest;
+  }
+
+  /** Returns the ids of the people in {@code group}, using and filling the cache. */
+  private BitSet expandGroup(String group) {
+    BitSet cached = expanded.get(group);
+    if (cached != null) {
+      return cached;
+    }
+
+    // Walk the groups depth first without recursion, so deep nesting cannot overflow the stack.
+    // A group is "open" from when it is first reached until all of its subgroups are expanded;
+    // reaching an open group again means there is a cycle.
+    Set<String> open = new LinkedHashSet<>();
+    Deque<String> stack = new ArrayDeque<>();
+    stack.push(group);
+    while (!stack.isEmpty()) {
+      String current = stack.peek();
+      if (expanded.containsKey(current)) {
+        stack.pop();
+        continue;
+      }
+
+      if (open.add(current)) {
+        for (String member : membersByGroup.get(current)) {
+          if (!membersByGroup.containsKey(member) || expanded.containsKey(member)) {
+            continue;
+          }
+          if (open.contains(member)) {
+            throw new IllegalStateException("group membership cycle through " + member);
+          }
+          stack.push(member);
+        }
+        continue;
+      }
+
+      // Every subgroup is expanded now, so the group's members can be combined.
+      BitSet ids = new BitSet();
+      for (String member : membersByGroup.get(current)) {
+        if (membersByGroup.containsKey(member)) {
+          ids.or(expanded.get(member));
+        } else {
+          ids.set(personId(member));
+        }
+      }
+      expanded.put(current, ids);
+      open.remove(current);
+      stack.pop();
+    }
+    return expanded.get(group);
+  }
+
+  /** Drops the cached members of {@code name} and of every group that contains it. */
+  private void invalidate(String name) {
+    Deque<String> toVisit = new ArrayDeque<>();
+    Set<String> visited = new HashSet<>();
+    toVisit.add(name);
+    while (!toVisit.isEmpty()) {
+      String current = toVisit.poll();
+      if (!visited.add(current)) {
+        continue;
+      }
+      expanded.remove(current);
+      toVisit.addAll(parentsByGroup.getOrDefault(current, Collections.<String>emptySet()));
+    }
+  }
+
+  private int personId(String person) {
+    Integer id = personIds.get(person);
+    if (id == null) {
+      id = people.size();
+      people.add(person);
+      personIds.put(person, id);
+    }
+    return id;
+  }
+}
@@ -18,7 +18,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
 public final class MeetingRequest {
   // All the people that should be attending this new meeting. Use a set to avoid duplicates.
@@ -30,11 +32,62 @@ public final class MeetingRequest {
   // The duration of the meeting in minutes.
   private final long duration;
 
+  // How many people the meeting room must seat. Zero means the meeting does not need a room.
+  private int room_capacity;
+
+  // The features the meeting room must offer. Ignored if the meeting does not need a room.
+  private final Collection<String> room_features = new HashSet<>();
+
+  // If positive, meetings must start on a multiple of this many minutes, and the results are
+  // concrete start times rather than gaps.
+  private int alignment;
+
+  // The minutes between successive start times offered within one gap. A multiple of alignment.
+  private int step;
+
+  // If true, only the earliest possible meeting time is wanted.
+  private boolean first_available;
+
+  // When to give up and answer with the times found so far. Not sent over the wire; requests carry
+  // a relative timeout_ms instead.
+  private transient Deadline deadline = Deadline.NONE;
+
+  // Free time wanted around the meeting by everyone, and by particular attendees on top of that.
+  private Padding padding = Padding.NONE;
+  private final Map<String, Padding> attendee_padding = new HashMap<>();
+
   public MeetingRequest(Collection<String> attendees, long duration) {
     this.duration = duration;
     this.attendees.addAll(attendees);
   }
 
+  /** Copies every field of {@code other} except its attendees. Keep in step with the fields. */
+  private MeetingRequest(
+      MeetingRequest other, Collection<String> attendees, Collection<String> optionalAttendees) {
+    this(attendees, other.duration);
+    for (String attendee : optionalAttendees) {
+      addOptionalAttendee(attendee);
+    }
+    room_capacity = other.room_capacity;
+    room_features.addAll(other.room_features);
+    alignment = other.alignment;
+    step = other.step;
+    first_available = other.first_available;
+    deadline = other.deadline;
+    padding = other.padding;
+    attendee_padding.putAll(other.attendee_padding);
+  }
+
+  /**
+   * Returns a copy of this request inviting {@code attendees} and {@code optionalAttendees}
+   * instead. Everything else, including any per-attendee padding, is the same. Someone in both
+   * collections is a mandatory attendee.
+   */
+  public MeetingRequest withAttendees(
+      Collection<String> attendees, Collection<String> optionalAttendees) {
+    return new MeetingRequest(this, attendees, optionalAttendees);
+  }
+
   /** Returns a read-only copy of the people who are required to attend this meeting. */
   public Collection<String> getAttendees() {
     return Collections.unmodifiableCollection(attendees);
@@ -52,6 +105,128 @@ public final class MeetingRequest {
     }
   }
 
+  /**
+   * Asks for a room that seats at least {@code capacity} people and offers every one of {@code
+   * features}.
+   */
+  public void requireRoom(int capacity, Collection<String> features) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    room_capacity = capacity;
+    room_features.clear();
+    room_features.addAll(features);
+  }
+
+  /** Returns true if the meeting needs a room. */
+  public boolean needsRoom() {
+    return room_capacity > 0;
+  }
+
+  /** Returns how many people the meeting room must seat, or zero if no room is needed. */
+  public int getRoomCapacity() {
+    return room_capacity;
+  }
+
+  /** Returns a read-only copy of the features the meeting room must offer. */
+  public Collection<String> getRoomFeatures() {
+    return Collections.unmodifiableCollection(room_features);
+  }
+
+  /**
+   * Asks for concrete start times on multiples of {@code alignment} minutes, {@code step} minutes
+   * apart within each free gap. For example, an alignment of 15 and a step of 30 offers 9:15, 9:45,
+   * 10:15 and so on in a gap starting at 9:05.
+   */
+  public void setAlignment(int alignment, int step) {
+    if (alignment <= 0) {
+      throw new IllegalArgumentException("alignment must be positive");
+    }
+
+    if (step <= 0 || step % alignment != 0) {
+      throw new IllegalArgumentException("step must be a positive multiple of alignment");
+    }
+
+    this.alignment = alignment;
+    this.step = step;
+  }
+
+  /** Returns the minutes meeting starts are aligned to, or zero if starts are not aligned. */
+  public int getAlignment() {
+    return alignment;
+  }
+
+  /** Returns the minutes between aligned start times. Defaults to the alignment. */
+  public int getStep() {
+    return step > 0 ? step : alignment;
+  }
+
+  /**
+   * Asks for just the earliest possible meeting time rather than all of them, which lets the query
+   * stop as soon as it finds one.
+   */
+  public void setFirstAvailable(boolean firstAvailable) {
+    first_available = firstAvailable;
+  }
+
+  /** Returns true if only the earliest possible meeting time is wanted. */
+  public boolean isFirstAvailable() {
+    return first_available;
+  }
+
+  /** Asks for {@code padding} between the meeting and everyone's other meetings. */
+  public void setPadding(Padding padding) {
+    if (padding == null) {
+      throw new IllegalArgumentException("padding cannot be null");
+    }
+    this.padding = padding;
+  }
+
+  /** Asks for {@code padding} between the meeting and {@code attendee}'s other meetings. */
+  public void setAttendeePadding(String attendee, Padding padding) {
+    if (padding == null) {
+      throw new IllegalArgumentException("padding cannot be null");
+    }
+    attendee_padding.put(attendee, padding);
+  }
+
+  /** Returns the padding asked for on behalf of everyone. */
+  public Padding getPadding() {
+    return padding;
+  }
+
+  /** Returns a read-only map of the padding asked for on behalf of particular attendees. */
+  public Map<String, Padding> getAttendeePadding() {
+    return Collections.unmodifiableMap(attendee_padding);
+  }
+
+  /**
+   * Returns the padding to keep around {@code attendee}'s other meetings: the larger of the padding
+   * for everyone and any padding for {@code attendee}.
+   */
+  public Padding getPadding(String attendee) {
+    Padding own = attendee_padding.get(attendee);
+    return own == null ? padding : padding.max(own);
+  }
+
+  /** Returns true if any padding is asked for. */
+  public boolean hasPadding() {
+    return !padding.isNone() || !attendee_padding.isEmpty();
+  }
+
+  /** Asks the query to stop at {@code deadline} and return the times found so far. */
+  public void setDeadline(Deadline deadline) {
+    if (deadline == null) {
+      throw new IllegalArgumentException("deadline cannot be null. Use Deadline.NONE instead.");
+    }
+    this.deadline = deadline;
+  }
+
+  /** Returns when the query should stop, which is {@link Deadline#NONE} unless one was set. */
+  public Deadline getDeadline() {
+    return deadline;
+  }
+
   /** Returns the duration of the meeting in minutes. */
   public long getDuration() {
     return duration;
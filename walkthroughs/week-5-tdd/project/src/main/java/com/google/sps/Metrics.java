@@ -0,0 +1,75 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters, such as how often each query plan is chosen, so that thresholds can be
+ * tuned against real traffic. Counters are created on first use and never reset. Work that is not
+ * real traffic, such as warm-up, runs through {@link #uncounted} so it does not skew them.
+ */
+public final class Metrics {
+  private static final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+  // Set while the thread runs work that should not be counted.
+  private static final ThreadLocal<Boolean> uncounted = ThreadLocal.withInitial(() -> false);
+
+  private Metrics() {
+    // Disallow instances.
+  }
+
+  /** Adds one to the counter called {@code name}. Safe to call from any thread. */
+  public static void increment(String name) {
+    add(name, 1);
+  }
+
+  /** Adds {@code amount} to the counter called {@code name}. Safe to call from any thread. */
+  public static void add(String name, long amount) {
+    if (uncounted.get()) {
+      return;
+    }
+    counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+  }
+
+  /** Runs {@code work} on the calling thread without counting anything it does. */
+  public static void uncounted(Runnable work) {
+    boolean outer = uncounted.get();
+    uncounted.set(true);
+    try {
+      work.run();
+    } finally {
+      uncounted.set(outer);
+    }
+  }
+
+  /** Returns the current value of the counter called {@code name}, or zero if it was never used. */
+  public static long get(String name) {
+    LongAdder counter = counters.get(name);
+    return counter == null ? 0 : counter.sum();
+  }
+
+  /** Returns the current value of every counter, sorted by name. */
+  public static Map<String, Long> snapshot() {
+    Map<String, Long> values = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().sum());
+    }
+    return values;
+  }
+}
@@ -0,0 +1,98 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * Free time someone wants around a meeting, such as travel time or a break. Padding is considered
+ * read-only.
+ */
+public final class Padding {
+  /** No padding on either side. */
+  public static final Padding NONE = new Padding(0, 0);
+
+  private final int before;
+  private final int after;
+
+  /**
+   * Creates a new padding.
+   *
+   * @param before The free minutes wanted before the meeting starts. Must be non-negative.
+   * @param after The free minutes wanted after the meeting ends. Must be non-negative.
+   */
+  public Padding(int before, int after) {
+    if (before < 0) {
+      throw new IllegalArgumentException("before cannot be negative");
+    }
+
+    if (after < 0) {
+      throw new IllegalArgumentException("after cannot be negative");
+    }
+
+    this.before = before;
+    this.after = after;
+  }
+
+  /** Returns the free minutes wanted before the meeting starts. */
+  public int getBefore() {
+    return before;
+  }
+
+  /** Returns the free minutes wanted after the meeting ends. */
+  public int getAfter() {
+    return after;
+  }
+
+  /** Returns true if there is no padding on either side. */
+  public boolean isNone() {
+    return before == 0 && after == 0;
+  }
+
+  /** Returns the padding that satisfies both this and {@code other}: the larger of each side. */
+  public Padding max(Padding other) {
+    if (other.before <= before && other.after <= after) {
+      return this;
+    }
+    return new Padding(Math.max(before, other.before), Math.max(after, other.after));
+  }
+
+  /**
+   * Returns {@code busy} widened so that a meeting outside it keeps this padding: a meeting must
+   * start {@code before} minutes after the busy time ends, and end {@code after} minutes before it
+   * starts.
+   */
+  public TimeRange widen(TimeRange busy) {
+    if (isNone()) {
+      return busy;
+    }
+    return TimeRange.fromStartEnd(busy.start() - after, busy.end() + before, false);
+  }
+
+  @Override
+  public int hashCode() {
+    return before * 31 + after;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Padding
+        && before == ((Padding) other).before
+        && after == ((Padding) other).after;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Padding: %d before, %d after", before, after);
+  }
+}
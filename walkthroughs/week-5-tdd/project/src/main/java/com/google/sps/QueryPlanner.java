@@ -0,0 +1,112 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Chooses how {@link FindMeetingQuery} finds the attendees' free time, from statistics that are
+ * cheap to read: how many attendees there are, how many busy blocks each has, and how long the day
+ * is.
+ *
+ * <ul>
+ *   <li>{@link Plan#SWEEP} merges the attendees' busy times in start order. Every block costs
+ *       {@code log k} for {@code k} attendees, so it suits a few attendees with full calendars.
+ *   <li>{@link Plan#BITMAP} marks every busy minute in a bit set, one attendee at a time, then
+ *       scans the bit set for free runs. Blocks cost the same however many attendees there are, but
+ *       the whole day is scanned, so it suits many attendees with sparse calendars.
+ *   <li>{@link Plan#FIRST_FIT} is the sweep, stopped at the first time that fits. It is used
+ *       whenever a request only wants the first available time.
+ * </ul>
+ *
+ * <p>Each choice is logged at {@code FINE} and counted in {@link Metrics} as {@code
+ * query.plan.<plan>}, so the cost constants below can be tuned against real requests.
+ */
+public final class QueryPlanner {
+  private static final Logger logger = Logger.getLogger(QueryPlanner.class.getName());
+
+  private static final int MINUTES_PER_DAY = TimeRange.WHOLE_DAY.duration();
+
+  // Relative costs of the basic steps of each plan, measured in heap steps of the sweep.
+  private static final double SWEEP_COST_PER_BLOCK = 1.0;
+  private static final double BITMAP_COST_PER_BLOCK = 1.5;
+  private static final double BITMAP_COST_PER_ATTENDEE = 4.0;
+  private static final double BITMAP_COST_PER_WORD = 2.0;
+
+  /** The ways to find free time. */
+  public enum Plan {
+    SWEEP,
+    BITMAP,
+    FIRST_FIT
+  }
+
+  /**
+   * Returns the plan expected to be fastest for finding the free time of {@code attendees} in
+   * {@code source} for {@code request}. Sources that cannot estimate their busy times are swept.
+   */
+  public Plan choose(BusyTimeSource source, Collection<String> attendees, MeetingRequest request) {
+    Plan plan;
+    long blocks = 0;
+    if (request.isFirstAvailable()) {
+      plan = Plan.FIRST_FIT;
+    } else if (request.getDuration() <= 0) {
+      // Empty gaps can be meeting times, and a bit set cannot tell where they are.
+      plan = Plan.SWEEP;
+    } else {
+      blocks = estimateBusyTimes(source, attendees);
+      plan =
+          blocks >= 0 && bitmapCost(attendees.size(), blocks) < sweepCost(attendees.size(), blocks)
+              ? Plan.BITMAP
+              : Plan.SWEEP;
+    }
+
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine(
+          String.format(
+              "plan %s for %d attendees with %d busy blocks", plan, attendees.size(), blocks));
+    }
+    Metrics.increment("query.plan." + plan.name().toLowerCase());
+    return plan;
+  }
+
+  /** Returns the sum of the attendees' estimated busy times, or -1 if any is unknown. */
+  private static long estimateBusyTimes(BusyTimeSource source, Collection<String> attendees) {
+    long blocks = 0;
+    for (String attendee : attendees) {
+      int estimate = source.estimateBusyTimes(attendee);
+      if (estimate < 0) {
+        return -1;
+      }
+      blocks += estimate;
+    }
+    return blocks;
+  }
+
+  private static double sweepCost(int attendees, long blocks) {
+    return SWEEP_COST_PER_BLOCK * blocks * log2(attendees + 1);
+  }
+
+  private static double bitmapCost(int attendees, long blocks) {
+    return BITMAP_COST_PER_BLOCK * blocks
+        + BITMAP_COST_PER_ATTENDEE * attendees
+        + BITMAP_COST_PER_WORD * (MINUTES_PER_DAY / Long.SIZE + 1);
+  }
+
+  private static double log2(int value) {
+    return Math.log(value) / Math.log(2);
+  }
+}
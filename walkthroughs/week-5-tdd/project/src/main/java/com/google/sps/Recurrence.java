@@ -0,0 +1,82 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+/**
+ * How a recurring meeting repeats: every {@code period} minutes for {@code occurrences} times,
+ * starting at minute zero. For example, a weekly meeting for a quarter has a period of 7 * 24 * 60
+ * and 13 occurrences. Recurrences are considered read-only.
+ */
+public final class Recurrence {
+  private final int period;
+  private final int occurrences;
+  private final int required;
+
+  /**
+   * Creates a new recurrence.
+   *
+   * @param period The minutes between the starts of successive occurrences. Must be positive.
+   * @param occurrences How many times the meeting happens. Must be positive.
+   * @param required In how many of the occurrences a time must work for all attendees. Must be
+   *     between one and {@code occurrences}.
+   */
+  public Recurrence(int period, int occurrences, int required) {
+    if (period <= 0) {
+      throw new IllegalArgumentException("period must be positive");
+    }
+
+    if (occurrences <= 0) {
+      throw new IllegalArgumentException("occurrences must be positive");
+    }
+
+    if (required <= 0 || required > occurrences) {
+      throw new IllegalArgumentException("required must be between one and occurrences");
+    }
+
+    if ((long) period * occurrences > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("recurrence is too long");
+    }
+
+    this.period = period;
+    this.occurrences = occurrences;
+    this.required = required;
+  }
+
+  /** Creates a recurrence in which a time must work in every occurrence. */
+  public Recurrence(int period, int occurrences) {
+    this(period, occurrences, occurrences);
+  }
+
+  /** Returns the minutes between the starts of successive occurrences. */
+  public int getPeriod() {
+    return period;
+  }
+
+  /** Returns how many times the meeting happens. */
+  public int getOccurrences() {
+    return occurrences;
+  }
+
+  /** Returns in how many occurrences a time must work. */
+  public int getRequired() {
+    return required;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "Recurrence: every %d minutes, %d of %d times", period, required, occurrences);
+  }
+}
@@ -0,0 +1,90 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A bookable resource, such as a meeting room. Resources are calendars in their own right: a
+ * resource is busy whenever an {@code Event} lists its name among the attendees. Resources are
+ * considered read-only.
+ */
+public final class Resource {
+  private final String name;
+  private final int capacity;
+  private final Set<String> features = new HashSet<>();
+
+  /**
+   * Creates a new resource.
+   *
+   * @param name The name events use to book this resource. Must be non-null.
+   * @param capacity How many people fit in this resource. Must be non-negative.
+   * @param features The equipment this resource offers (e.g. "projector"). Must be non-null.
+   */
+  public Resource(String name, int capacity, Collection<String> features) {
+    if (name == null) {
+      throw new IllegalArgumentException("name cannot be null");
+    }
+
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity cannot be negative");
+    }
+
+    if (features == null) {
+      throw new IllegalArgumentException("features cannot be null. Use empty array instead.");
+    }
+
+    this.name = name;
+    this.capacity = capacity;
+    this.features.addAll(features);
+  }
+
+  /** Returns the name events use to book this resource. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns how many people fit in this resource. */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** Returns a read-only set of the features this resource offers. */
+  public Set<String> getFeatures() {
+    return Collections.unmodifiableSet(features);
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Resource && equals(this, (Resource) other);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Resource: %s (%d)", name, capacity);
+  }
+
+  private static boolean equals(Resource a, Resource b) {
+    return a.name.equals(b.name) && a.capacity == b.capacity && a.features.equals(b.features);
+  }
+}
@@ -0,0 +1,126 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalogue of bookable resources, indexed by capacity and by feature so that finding the rooms
+ * that suit a meeting does not require looking at every room.
+ *
+ * <p>Resources are grouped into capacity buckets by powers of two: bucket {@code i} holds the
+ * resources whose capacity is in {@code [2^i, 2^(i+1))}. Every resource in a bucket above the one
+ * holding the requested capacity is large enough, so only a single bucket ever needs its capacities
+ * checked. Features are indexed as one bit set per feature over resource ids.
+ */
+public final class ResourceCatalog {
+  // One bucket per bit of an int capacity.
+  private static final int BUCKET_COUNT = Integer.SIZE;
+
+  private final List<Resource> resources = new ArrayList<>();
+  private final List<List<Integer>> capacityBuckets = new ArrayList<>();
+  private final Map<String, BitSet> featureIndex = new HashMap<>();
+  private final Map<String, Integer> idsByName = new HashMap<>();
+
+  public ResourceCatalog() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      capacityBuckets.add(new ArrayList<Integer>());
+    }
+  }
+
+  /** Creates a catalogue holding {@code resources}. */
+  public ResourceCatalog(Collection<Resource> resources) {
+    this();
+    for (Resource resource : resources) {
+      add(resource);
+    }
+  }
+
+  /** Adds {@code resource} to the catalogue. Resource names must be unique. */
+  public void add(Resource resource) {
+    if (idsByName.containsKey(resource.getName())) {
+      throw new IllegalArgumentException("duplicate resource: " + resource.getName());
+    }
+
+    int id = resources.size();
+    resources.add(resource);
+    idsByName.put(resource.getName(), id);
+    capacityBuckets.get(bucketOf(resource.getCapacity())).add(id);
+    for (String feature : resource.getFeatures()) {
+      BitSet ids = featureIndex.get(feature);
+      if (ids == null) {
+        ids = new BitSet();
+        featureIndex.put(feature, ids);
+      }
+      ids.set(id);
+    }
+  }
+
+  /** Returns the resource booked under {@code name}, or {@code null} if there is none. */
+  public Resource get(String name) {
+    Integer id = idsByName.get(name);
+    return id == null ? null : resources.get(id);
+  }
+
+  /** Returns the number of resources in the catalogue. */
+  public int size() {
+    return resources.size();
+  }
+
+  /**
+   * Returns the resources that seat at least {@code minCapacity} people and offer every one of
+   * {@code features}, in the order they were added.
+   */
+  public List<Resource> find(int minCapacity, Collection<String> features) {
+    BitSet candidates = new BitSet(resources.size());
+    int firstBucket = bucketOf(minCapacity);
+
+    // Only the lowest bucket can hold resources that are too small.
+    for (int id : capacityBuckets.get(firstBucket)) {
+      if (resources.get(id).getCapacity() >= minCapacity) {
+        candidates.set(id);
+      }
+    }
+    for (int bucket = firstBucket + 1; bucket < BUCKET_COUNT; bucket++) {
+      for (int id : capacityBuckets.get(bucket)) {
+        candidates.set(id);
+      }
+    }
+
+    for (String feature : features) {
+      BitSet ids = featureIndex.get(feature);
+      if (ids == null) {
+        return new ArrayList<>();
+      }
+      candidates.and(ids);
+    }
+
+    List<Resource> matches = new ArrayList<>(candidates.cardinality());
+    for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+      matches.add(resources.get(id));
+    }
+    return matches;
+  }
+
+  /** Returns the capacity bucket for {@code capacity}: the index of its highest set bit. */
+  private static int bucketOf(int capacity) {
+    return capacity <= 0 ? 0 : Integer.SIZE - 1 - Integer.numberOfLeadingZeros(capacity);
+  }
+}
@@ -0,0 +1,79 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.hold;
+
+import com.google.sps.TimeRange;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A tentative booking: a time range reserved for some attendees until it is confirmed, released or
+ * expires. Holds are considered read-only.
+ */
+public final class Hold {
+  private final long id;
+  private final String title;
+  private final TimeRange when;
+  private final List<String> attendees;
+  // The tick of the expiry wheel at which the hold lapses.
+  final long expiresAt;
+
+  Hold(long id, String title, TimeRange when, Collection<String> attendees, long expiresAt) {
+    if (title == null) {
+      throw new IllegalArgumentException("title cannot be null");
+    }
+
+    if (when == null) {
+      throw new IllegalArgumentException("when cannot be null");
+    }
+
+    if (attendees == null) {
+      throw new IllegalArgumentException("attendees cannot be null. Use empty array instead.");
+    }
+
+    this.id = id;
+    this.title = title;
+    this.when = when;
+    this.attendees = Collections.unmodifiableList(new ArrayList<>(attendees));
+    this.expiresAt = expiresAt;
+  }
+
+  /** Returns the id to confirm or release this hold with. */
+  public long getId() {
+    return id;
+  }
+
+  /** Returns the title the event will have once this hold is confirmed. */
+  public String getTitle() {
+    return title;
+  }
+
+  /** Returns the reserved time range. */
+  public TimeRange getWhen() {
+    return when;
+  }
+
+  /** Returns a read-only list of the attendees the time is reserved for. */
+  public List<String> getAttendees() {
+    return attendees;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Hold %d: %s %s for %s", id, title, when, attendees);
+  }
+}
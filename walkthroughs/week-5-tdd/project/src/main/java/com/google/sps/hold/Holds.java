@@ -0,0 +1,312 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.hold;
+
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.Metrics;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tentative bookings. A hold reserves a time range for every one of its attendees at once, so two
+ * people booking the same attendees from the same {@code /query} answer cannot both get the slot. A
+ * hold becomes an event when it is confirmed, and frees its time when it is released or expires.
+ *
+ * <p>There is no global lock. Attendees hash to a fixed set of lock stripes, and an operation takes
+ * the stripes of its own attendees in ascending order, so bookings that share no stripe run in
+ * parallel and no two bookings can deadlock. Expiry is driven by a {@link TimerWheel}, and also
+ * checked whenever a hold is looked at, so a hold never outlives its deadline.
+ *
+ * <p>Only bookings made through holds are kept apart. Events added to the store directly, e.g. by
+ * an import, are seen by later holds but do not wait for earlier ones.
+ */
+public final class Holds implements AutoCloseable {
+  /** Somewhere to write confirmed events, such as the store itself or the event log. */
+  public interface Sink {
+    void addAll(List<Event> events) throws IOException;
+  }
+
+  /** How long a hold lasts if it is not confirmed, in seconds. */
+  public static final long DEFAULT_TTL_SECONDS = 300;
+
+  // Enough slots that a default hold never waits a full turn of the wheel.
+  private static final int WHEEL_SLOTS = 512;
+
+  // Enough stripes that unrelated bookings rarely share one on any number of cores.
+  private static final int STRIPES_PER_CORE = 16;
+
+  private final EventStore store;
+  private final long ttlTicks;
+  private final ReentrantLock[] stripes;
+  private final Map<Long, Hold> holdsById = new ConcurrentHashMap<>();
+  // Each attendee's list is only read or changed under that attendee's stripe.
+  private final Map<String, List<Hold>> holdsByAttendee = new ConcurrentHashMap<>();
+  private final AtomicLong nextId = new AtomicLong();
+  private final TimerWheel<Hold> expiry = new TimerWheel<>(WHEEL_SLOTS, this::expire);
+  private ScheduledExecutorService ticker;
+
+  /**
+   * Creates holds on {@code store} that last {@code ttlTicks} ticks. Nothing advances the clock
+   * until {@link #tick} is called.
+   */
+  Holds(EventStore store, long ttlTicks, int stripeCount) {
+    if (ttlTicks <= 0) {
+      throw new IllegalArgumentException("ttlTicks must be positive");
+    }
+
+    if (stripeCount <= 0) {
+      throw new IllegalArgumentException("stripeCount must be positive");
+    }
+
+    this.store = store;
+    this.ttlTicks = ttlTicks;
+    // A power of two, so that a stripe is picked by masking.
+    this.stripes =
+        new ReentrantLock[stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Creates holds on {@code store} that expire {@code ttlSeconds} after they are placed, ticking
+   * the expiry wheel once a second on a daemon thread until {@link #close}.
+   */
+  public static Holds start(EventStore store, long ttlSeconds) {
+    Holds holds =
+        new Holds(store, ttlSeconds, STRIPES_PER_CORE * Runtime.getRuntime().availableProcessors());
+    holds.ticker =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "hold-expiry");
+              thread.setDaemon(true);
+              return thread;
+            });
+    holds.ticker.scheduleAtFixedRate(holds::tick, 1, 1, TimeUnit.SECONDS);
+    return holds;
+  }
+
+  /**
+   * Reserves {@code when} for every one of {@code attendees}, or for none of them if any is busy or
+   * already held then.
+   *
+   * @return the new hold, or {@code null} if some attendee is not free
+   */
+  public Hold hold(String title, TimeRange when, Collection<String> attendees) {
+    Hold hold =
+        new Hold(
+            nextId.incrementAndGet(),
+            title,
+            when,
+            new LinkedHashSet<>(attendees),
+            expiry.now() + ttlTicks);
+    int[] held = lock(hold.getAttendees());
+    try {
+      EventStore.Snapshot snapshot = store.snapshot();
+      long now = expiry.now();
+      for (String attendee : hold.getAttendees()) {
+        if (isBusy(snapshot, attendee, when) || isHeld(attendee, when, now)) {
+          Metrics.increment("holds.conflicts");
+          return null;
+        }
+      }
+      for (String attendee : hold.getAttendees()) {
+        List<Hold> holds = holdsByAttendee.get(attendee);
+        if (holds == null) {
+          holds = new ArrayList<>();
+          holdsByAttendee.put(attendee, holds);
+        }
+        holds.add(hold);
+      }
+      holdsById.put(hold.getId(), hold);
+    } finally {
+      unlock(held);
+    }
+    expiry.schedule(hold, hold.expiresAt);
+    Metrics.increment("holds.placed");
+    return hold;
+  }
+
+  /**
+   * Turns the hold with {@code id} into an event written to {@code sink}. If writing fails, the
+   * hold is kept.
+   *
+   * @return the new event, or {@code null} if there is no such hold or it has expired
+   */
+  public Event confirm(long id, Sink sink) throws IOException {
+    Hold hold = holdsById.get(id);
+    if (hold == null) {
+      return null;
+    }
+
+    int[] held = lock(hold.getAttendees());
+    try {
+      if (holdsById.get(id) != hold) {
+        // Released or expired while we waited.
+        return null;
+      }
+      if (hold.expiresAt <= expiry.now()) {
+        drop(hold);
+        return null;
+      }
+      // Write before dropping the hold, so the time is never free in between.
+      Event event = new Event(hold.getTitle(), hold.getWhen(), hold.getAttendees());
+      sink.addAll(Collections.singletonList(event));
+      drop(hold);
+      Metrics.increment("holds.confirmed");
+      return event;
+    } finally {
+      unlock(held);
+    }
+  }
+
+  /** Frees the time of the hold with {@code id}. Returns false if there is no such hold. */
+  public boolean release(long id) {
+    Hold hold = holdsById.get(id);
+    if (hold == null) {
+      return false;
+    }
+
+    int[] held = lock(hold.getAttendees());
+    try {
+      return drop(hold);
+    } finally {
+      unlock(held);
+    }
+  }
+
+  /** Returns the number of holds that have not been confirmed, released or reclaimed. */
+  public int size() {
+    return holdsById.size();
+  }
+
+  /** Advances the expiry clock by one tick, freeing the holds that are due. */
+  void tick() {
+    expiry.tick();
+  }
+
+  /** Stops the expiry clock, if {@link #start} started one. */
+  @Override
+  public void close() {
+    if (ticker != null) {
+      ticker.shutdownNow();
+    }
+  }
+
+  private void expire(Hold hold) {
+    int[] held = lock(hold.getAttendees());
+    try {
+      if (drop(hold)) {
+        Metrics.increment("holds.expired");
+      }
+    } finally {
+      unlock(held);
+    }
+  }
+
+  /** Forgets {@code hold}. Must be called with its attendees' stripes held. */
+  private boolean drop(Hold hold) {
+    if (!holdsById.remove(hold.getId(), hold)) {
+      return false;
+    }
+    for (String attendee : hold.getAttendees()) {
+      List<Hold> holds = holdsByAttendee.get(attendee);
+      holds.remove(hold);
+      if (holds.isEmpty()) {
+        holdsByAttendee.remove(attendee);
+      }
+    }
+    return true;
+  }
+
+  private static boolean isBusy(EventStore.Snapshot snapshot, String attendee, TimeRange when) {
+    Iterator<TimeRange> busyTimes = snapshot.getBusyTimes(Collections.singleton(attendee));
+    while (busyTimes.hasNext()) {
+      TimeRange busy = busyTimes.next();
+      if (busy.start() >= when.end()) {
+        // Busy times are sorted by start, so none of the rest can overlap.
+        return false;
+      }
+      if (busy.overlaps(when)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns true if a live hold has {@code attendee} at {@code when}. Needs the stripe held. */
+  private boolean isHeld(String attendee, TimeRange when, long now) {
+    List<Hold> holds = holdsByAttendee.get(attendee);
+    if (holds == null) {
+      return false;
+    }
+    for (Hold other : holds) {
+      // Lapsed holds the wheel has not reached yet no longer count.
+      if (other.expiresAt > now && other.getWhen().overlaps(when)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Locks the stripes of {@code attendees} in ascending order, returning the ones it locked. */
+  private int[] lock(Collection<String> attendees) {
+    int[] held = new int[attendees.size()];
+    int count = 0;
+    for (String attendee : attendees) {
+      held[count++] = stripeOf(attendee);
+    }
+    Arrays.sort(held);
+
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinct == 0 || held[i] != held[distinct - 1]) {
+        held[distinct++] = held[i];
+      }
+    }
+    held = Arrays.copyOf(held, distinct);
+    for (int stripe : held) {
+      stripes[stripe].lock();
+    }
+    return held;
+  }
+
+  private void unlock(int[] held) {
+    for (int i = held.length - 1; i >= 0; i--) {
+      stripes[held[i]].unlock();
+    }
+  }
+
+  private int stripeOf(String attendee) {
+    int hash = attendee.hashCode();
+    // Spread the high bits down, as HashMap does, since only the low bits pick the stripe.
+    return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+  }
+}
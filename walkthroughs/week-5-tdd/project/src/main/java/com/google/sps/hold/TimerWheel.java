@@ -0,0 +1,84 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.hold;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timer wheel. Items are scheduled for a tick and handed to a callback when the wheel
+ * reaches it, so scheduling is constant time and a tick only looks at one slot, however many items
+ * are waiting. Items more than a turn of the wheel away share a slot with nearer ones and are
+ * skipped until their turn comes round.
+ *
+ * <p>Any thread may schedule, but only one thread at a time may {@link #tick}. An item scheduled
+ * while its slot is being ticked may fire a turn late, so callers that need exact deadlines also
+ * check them against {@link #now}.
+ */
+final class TimerWheel<T> {
+  private final Queue<Entry<T>>[] slots;
+  private final Consumer<T> onExpire;
+  private volatile long now;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  TimerWheel(int slotCount, Consumer<T> onExpire) {
+    if (slotCount <= 0) {
+      throw new IllegalArgumentException("slotCount must be positive");
+    }
+
+    slots = new Queue[slotCount];
+    for (int i = 0; i < slotCount; i++) {
+      slots[i] = new ConcurrentLinkedQueue<>();
+    }
+    this.onExpire = onExpire;
+  }
+
+  /** Returns the number of ticks so far. */
+  long now() {
+    return now;
+  }
+
+  /** Hands {@code item} to the callback on the first tick at or after {@code deadline}. */
+  void schedule(T item, long deadline) {
+    long at = Math.max(deadline, now + 1);
+    slots[(int) (at % slots.length)].add(new Entry<T>(item, at));
+  }
+
+  /** Advances the wheel by one tick, handing every item that is due to the callback. */
+  void tick() {
+    long at = now + 1;
+    now = at;
+    Iterator<Entry<T>> entries = slots[(int) (at % slots.length)].iterator();
+    while (entries.hasNext()) {
+      Entry<T> entry = entries.next();
+      if (entry.deadline <= at) {
+        entries.remove();
+        onExpire.accept(entry.item);
+      }
+    }
+  }
+
+  private static final class Entry<T> {
+    private final T item;
+    private final long deadline;
+
+    Entry(T item, long deadline) {
+      this.item = item;
+      this.deadline = deadline;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.ics;
+
+import com.google.sps.Event;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Imports an iCalendar stream in batches, parsing on the calling thread while a second thread adds
+ * the previous batches to the store. The two threads meet at a small bounded queue, so however
+ * large the calendar is, only a few batches are ever held in memory, and a slow store makes the
+ * parser wait rather than pile up events.
+ */
+public final class IcsImporter {
+  /** Where imported batches go, e.g. {@code EventStore::addAll} or {@code EventLog::addAll}. */
+  public interface Sink {
+    void addAll(List<Event> events) throws IOException;
+  }
+
+  /** The default number of events per batch. */
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  // Batches waiting for the sink. Two keep the sink busy while the parser fills the next one.
+  private static final int QUEUE_CAPACITY = 2;
+
+  // Tells the sink thread that the parser is done.
+  private static final List<Event> END = Collections.emptyList();
+
+  private IcsImporter() {
+    // Disallow instances.
+  }
+
+  /**
+   * Parses every VEVENT in {@code reader} and adds them to {@code sink} in batches of {@code
+   * batchSize}, returning the number of events added. If parsing fails part way, the batches before
+   * the failure have already been added.
+   *
+   * @throws IllegalArgumentException if the calendar is malformed
+   * @throws IOException if reading fails or the sink fails
+   * @throws RuntimeException if the sink throws one; it is rethrown here as it was thrown
+   */
+  public static int importAll(Reader reader, final Sink sink, int batchSize) throws IOException {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batchSize must be positive");
+    }
+
+    final BlockingQueue<List<Event>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    final AtomicReference<Throwable> sinkFailure = new AtomicReference<>();
+    final int[] added = new int[1];
+    Thread indexer =
+        new Thread(
+            () -> {
+              try {
+                for (List<Event> batch = queue.take(); batch != END; batch = queue.take()) {
+                  if (sinkFailure.get() == null) {
+                    try {
+                      sink.addAll(batch);
+                      added[0] += batch.size();
+                    } catch (IOException | RuntimeException | Error e) {
+                      // Keep draining so the parser is never left blocked on a full queue.
+                      sinkFailure.set(e);
+                    }
+                  }
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            },
+            "ics-indexer");
+    indexer.setDaemon(true);
+    indexer.start();
+
+    try {
+      IcsParser parser = new IcsParser(reader);
+      List<Event> batch = new ArrayList<>(batchSize);
+      for (Event event = parser.next();
+          event != null && sinkFailure.get() == null;
+          event = parser.next()) {
+        batch.add(event);
+        if (batch.size() == batchSize) {
+          queue.put(batch);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        queue.put(batch);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while importing", e);
+    } finally {
+      // Always let the indexer finish what was queued, so a failed import is cut off cleanly.
+      putUninterruptibly(queue, END);
+      joinUninterruptibly(indexer);
+    }
+
+    // The join makes the indexer's writes visible here.
+    Throwable failure = sinkFailure.get();
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    return added[0];
+  }
+
+  private static void putUninterruptibly(BlockingQueue<List<Event>> queue, List<Event> batch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        queue.put(batch);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void joinUninterruptibly(Thread thread) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        thread.join();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
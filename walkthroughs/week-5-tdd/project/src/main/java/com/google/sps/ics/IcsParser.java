@@ -0,0 +1,326 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.ics;
+
+import com.google.sps.AttendeeNames;
+import com.google.sps.Event;
+import com.google.sps.TimeRange;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the VEVENTs of an iCalendar (.ics) stream one at a time, without building the document in
+ * memory. Folded lines are joined as they are read, and only the properties an {@link Event} needs
+ * are kept: SUMMARY, DTSTART, DTEND or DURATION, and ATTENDEE.
+ *
+ * <p>Events here have no dates, so only each event's time of day is kept, and events that last all
+ * day take the whole day. Attendees are named by their CN parameter if they have one, or otherwise
+ * by their address without "mailto:". Names are interned.
+ */
+public final class IcsParser {
+  private final BufferedReader reader;
+  private String lookahead;
+  private int lineNumber;
+
+  public IcsParser(Reader reader) {
+    this.reader =
+        reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+  }
+
+  /**
+   * Returns the next VEVENT as an event, or {@code null} at the end of the stream. VEVENTs without
+   * a start time are skipped.
+   *
+   * @throws IllegalArgumentException if a property the parser uses is malformed
+   */
+  public Event next() throws IOException {
+    for (String line = nextLine(); line != null; line = nextLine()) {
+      if (line.equalsIgnoreCase("BEGIN:VEVENT")) {
+        Event event = readEvent();
+        if (event != null) {
+          return event;
+        }
+      }
+    }
+    return null;
+  }
+
+  /** Returns the line number of the last line read, for error messages. */
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  /** Reads the properties of a VEVENT up to its END, returning {@code null} if it has no start. */
+  private Event readEvent() throws IOException {
+    String title = "";
+    Integer start = null;
+    Integer end = null;
+    Integer duration = null;
+    boolean allDay = false;
+    List<String> attendees = new ArrayList<>();
+
+    // Properties of components nested in the event, such as VALARMs, are ignored.
+    int depth = 0;
+    for (String line = nextLine(); line != null; line = nextLine()) {
+      Property property = Property.parse(line, lineNumber);
+      if (property.name.equals("BEGIN")) {
+        depth++;
+        continue;
+      }
+      if (property.name.equals("END")) {
+        if (depth == 0) {
+          break;
+        }
+        depth--;
+        continue;
+      }
+      if (depth > 0) {
+        continue;
+      }
+
+      switch (property.name) {
+        case "SUMMARY":
+          title = unescape(property.value);
+          break;
+        case "DTSTART":
+          allDay =
+              "DATE".equalsIgnoreCase(property.parameter("VALUE")) || property.value.length() == 8;
+          start = allDay ? 0 : minuteOfDay(property.value);
+          break;
+        case "DTEND":
+          end = property.value.length() == 8 ? null : minuteOfDay(property.value);
+          break;
+        case "DURATION":
+          duration = durationInMinutes(property.value);
+          break;
+        case "ATTENDEE":
+          String name = property.parameter("CN");
+          if (name == null) {
+            name =
+                property.value.regionMatches(true, 0, "mailto:", 0, 7)
+                    ? property.value.substring(7)
+                    : property.value;
+          }
+          attendees.add(AttendeeNames.intern(name));
+          break;
+        default:
+          break;
+      }
+    }
+
+    if (start == null) {
+      return null;
+    }
+    TimeRange when;
+    if (allDay) {
+      when = TimeRange.WHOLE_DAY;
+    } else if (duration != null) {
+      when = TimeRange.fromStartDuration(start, duration);
+    } else if (end != null) {
+      // An event that ends before its start time of day runs past midnight. One that ends when it
+      // starts, such as a reminder, takes no time.
+      when =
+          TimeRange.fromStartEnd(
+              start, end >= start ? end : end + TimeRange.WHOLE_DAY.duration(), false);
+    } else {
+      when = TimeRange.fromStartDuration(start, 0);
+    }
+    return new Event(title, when, attendees);
+  }
+
+  /** Returns the next unfolded content line, or {@code null} at the end of the stream. */
+  private String nextLine() throws IOException {
+    String line = lookahead != null ? lookahead : readRawLine();
+    lookahead = null;
+    while (line != null && line.isEmpty()) {
+      line = readRawLine();
+    }
+    if (line == null) {
+      return null;
+    }
+
+    // A line that starts with a space or tab continues the one before it.
+    StringBuilder unfolded = null;
+    for (String next = readRawLine(); next != null; next = readRawLine()) {
+      if (next.isEmpty() || (next.charAt(0) != ' ' && next.charAt(0) != '\t')) {
+        lookahead = next;
+        break;
+      }
+      if (unfolded == null) {
+        unfolded = new StringBuilder(line);
+      }
+      unfolded.append(next, 1, next.length());
+    }
+    return unfolded == null ? line : unfolded.toString();
+  }
+
+  private String readRawLine() throws IOException {
+    String line = reader.readLine();
+    if (line != null) {
+      lineNumber++;
+    }
+    return line;
+  }
+
+  /** Returns the minute of the day of a DATE-TIME such as 20200101T093000 or 20200101T093000Z. */
+  private int minuteOfDay(String value) {
+    int time = value.indexOf('T');
+    if (time < 0 || value.length() < time + 5) {
+      throw new IllegalArgumentException(
+          String.format("bad date-time %s on line %d", value, lineNumber));
+    }
+    try {
+      int hours = Integer.parseInt(value.substring(time + 1, time + 3));
+      int minutes = Integer.parseInt(value.substring(time + 3, time + 5));
+      return TimeRange.getTimeInMinutes(hours, minutes);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          String.format("bad date-time %s on line %d", value, lineNumber), e);
+    }
+  }
+
+  /** Returns the length in minutes of a DURATION such as PT1H30M or P1D. Seconds are dropped. */
+  private int durationInMinutes(String value) {
+    int minutes = 0;
+    int number = 0;
+    boolean sawDigit = false;
+    int i = value.startsWith("+") || value.startsWith("-") ? 1 : 0;
+    if (i >= value.length() || value.charAt(i) != 'P') {
+      throw new IllegalArgumentException(
+          String.format("bad duration %s on line %d", value, lineNumber));
+    }
+    for (i++; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= '0' && c <= '9') {
+        number = number * 10 + (c - '0');
+        sawDigit = true;
+        continue;
+      }
+      if (c == 'T') {
+        continue;
+      }
+      if (!sawDigit) {
+        throw new IllegalArgumentException(
+            String.format("bad duration %s on line %d", value, lineNumber));
+      }
+      switch (c) {
+        case 'W':
+          minutes += number * 7 * 24 * 60;
+          break;
+        case 'D':
+          minutes += number * 24 * 60;
+          break;
+        case 'H':
+          minutes += number * 60;
+          break;
+        case 'M':
+          minutes += number;
+          break;
+        case 'S':
+          break;
+        default:
+          throw new IllegalArgumentException(
+              String.format("bad duration %s on line %d", value, lineNumber));
+      }
+      number = 0;
+      sawDigit = false;
+    }
+    return minutes;
+  }
+
+  /** Undoes the backslash escapes of a TEXT value. */
+  private static String unescape(String value) {
+    if (value.indexOf('\\') < 0) {
+      return value;
+    }
+    StringBuilder text = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' && i + 1 < value.length()) {
+        char next = value.charAt(++i);
+        text.append(next == 'n' || next == 'N' ? '\n' : next);
+      } else {
+        text.append(c);
+      }
+    }
+    return text.toString();
+  }
+
+  /** One content line split into its name, parameters and value. */
+  private static final class Property {
+    private final String name;
+    private final String parameters;
+    private final String value;
+
+    private Property(String name, String parameters, String value) {
+      this.name = name;
+      this.parameters = parameters;
+      this.value = value;
+    }
+
+    /** Splits {@code line} at the first colon that is not inside a quoted parameter value. */
+    static Property parse(String line, int lineNumber) {
+      boolean quoted = false;
+      int semicolon = -1;
+      for (int i = 0; i < line.length(); i++) {
+        char c = line.charAt(i);
+        if (c == '"') {
+          quoted = !quoted;
+        } else if (!quoted && c == ';' && semicolon < 0) {
+          semicolon = i;
+        } else if (!quoted && c == ':') {
+          int nameEnd = semicolon < 0 ? i : semicolon;
+          return new Property(
+              line.substring(0, nameEnd).toUpperCase(),
+              semicolon < 0 ? "" : line.substring(semicolon + 1, i),
+              line.substring(i + 1));
+        }
+      }
+      throw new IllegalArgumentException(
+          String.format("line %d is not a property: %s", lineNumber, line));
+    }
+
+    /** Returns the value of the parameter called {@code wanted}, unquoted, or {@code null}. */
+    String parameter(String wanted) {
+      int i = 0;
+      while (i < parameters.length()) {
+        int equals = parameters.indexOf('=', i);
+        if (equals < 0) {
+          return null;
+        }
+        String name = parameters.substring(i, equals);
+        int end = equals + 1;
+        boolean quoted = false;
+        while (end < parameters.length() && (quoted || parameters.charAt(end) != ';')) {
+          if (parameters.charAt(end) == '"') {
+            quoted = !quoted;
+          }
+          end++;
+        }
+        if (name.equalsIgnoreCase(wanted)) {
+          String value = parameters.substring(equals + 1, end);
+          return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+              ? value.substring(1, value.length() - 1)
+              : value;
+        }
+        i = end + 1;
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.Event;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes an {@code Event} as {"title": ..., "when": ..., "attendees": [...]}. Attendee
+ * names are interned as they are read.
+ */
+final class EventAdapter extends TypeAdapter<Event> {
+  private final TimeRangeAdapter timeRangeAdapter = new TimeRangeAdapter();
+
+  @Override
+  public void write(JsonWriter writer, Event event) throws IOException {
+    writer.beginObject();
+    writer.name("title").value(event.getTitle());
+    writer.name("when");
+    timeRangeAdapter.write(writer, event.getWhen());
+    writer.name("attendees");
+    Names.write(writer, event.getAttendees());
+    writer.endObject();
+  }
+
+  @Override
+  public Event read(JsonReader reader) throws IOException {
+    String title = null;
+    TimeRange when = null;
+    List<String> attendees = new ArrayList<>();
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "title":
+          title = reader.nextString();
+          break;
+        case "when":
+          when = timeRangeAdapter.read(reader);
+          break;
+        case "attendees":
+          Names.readInterned(reader, attendees);
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new Event(title, when, attendees);
+  }
+}
@@ -0,0 +1,39 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+
+/**
+ * The {@code Gson} instance shared by every servlet. The classes that are sent on every request
+ * have hand-written adapters, so they are read and written without reflection. {@code Gson} is
+ * thread-safe, so one instance serves all requests.
+ */
+public final class Json {
+  public static final Gson GSON =
+      new GsonBuilder()
+          .registerTypeAdapter(TimeRange.class, new TimeRangeAdapter().nullSafe())
+          .registerTypeAdapter(Event.class, new EventAdapter().nullSafe())
+          .registerTypeAdapter(MeetingRequest.class, new MeetingRequestAdapter().nullSafe())
+          .create();
+
+  private Json() {
+    // Disallow instances.
+  }
+}
@@ -0,0 +1,178 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.Deadline;
+import com.google.sps.MeetingRequest;
+import com.google.sps.Padding;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a {@code MeetingRequest} using the field names the web client sends, e.g.
+ * {"duration": 30, "attendees": [...], "optional_attendees": [...]}. Attendee names are interned as
+ * they are read.
+ */
+final class MeetingRequestAdapter extends TypeAdapter<MeetingRequest> {
+  @Override
+  public void write(JsonWriter writer, MeetingRequest request) throws IOException {
+    writer.beginObject();
+    writer.name("duration").value(request.getDuration());
+    writer.name("attendees");
+    Names.write(writer, request.getAttendees());
+    writer.name("optional_attendees");
+    Names.write(writer, request.getOptionalAttendees());
+    if (request.needsRoom()) {
+      writer.name("room_capacity").value(request.getRoomCapacity());
+      writer.name("room_features");
+      Names.write(writer, request.getRoomFeatures());
+    }
+    if (request.getAlignment() > 0) {
+      writer.name("alignment").value(request.getAlignment());
+      writer.name("step").value(request.getStep());
+    }
+    if (request.isFirstAvailable()) {
+      writer.name("first_available").value(true);
+    }
+    if (!request.getPadding().isNone()) {
+      writer.name("padding");
+      writePadding(writer, request.getPadding());
+    }
+    if (!request.getAttendeePadding().isEmpty()) {
+      writer.name("attendee_padding").beginObject();
+      for (Map.Entry<String, Padding> entry : request.getAttendeePadding().entrySet()) {
+        writer.name(entry.getKey());
+        writePadding(writer, entry.getValue());
+      }
+      writer.endObject();
+    }
+    writer.endObject();
+  }
+
+  @Override
+  public MeetingRequest read(JsonReader reader) throws IOException {
+    long duration = 0;
+    List<String> attendees = new ArrayList<>();
+    List<String> optionalAttendees = new ArrayList<>();
+    int roomCapacity = 0;
+    List<String> roomFeatures = new ArrayList<>();
+    int alignment = 0;
+    int step = 0;
+    boolean firstAvailable = false;
+    Padding padding = Padding.NONE;
+    Deadline deadline = Deadline.NONE;
+    Map<String, Padding> attendeePadding = new HashMap<>();
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "duration":
+          duration = reader.nextLong();
+          break;
+        case "attendees":
+          Names.read(reader, attendees);
+          break;
+        case "optional_attendees":
+          Names.read(reader, optionalAttendees);
+          break;
+        case "room_capacity":
+          roomCapacity = reader.nextInt();
+          break;
+        case "room_features":
+          Names.read(reader, roomFeatures);
+          break;
+        case "alignment":
+          alignment = reader.nextInt();
+          break;
+        case "step":
+          step = reader.nextInt();
+          break;
+        case "first_available":
+          firstAvailable = reader.nextBoolean();
+          break;
+        case "timeout_ms":
+          // The budget starts now, so reading the rest of the request counts against it.
+          deadline = Deadline.after(reader.nextLong());
+          break;
+        case "padding":
+          padding = readPadding(reader);
+          break;
+        case "attendee_padding":
+          reader.beginObject();
+          while (reader.hasNext()) {
+            String attendee = reader.nextName();
+            attendeePadding.put(attendee, readPadding(reader));
+          }
+          reader.endObject();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    MeetingRequest request = new MeetingRequest(attendees, duration);
+    for (String attendee : optionalAttendees) {
+      request.addOptionalAttendee(attendee);
+    }
+    if (roomCapacity > 0) {
+      request.requireRoom(roomCapacity, roomFeatures);
+    }
+    if (alignment > 0) {
+      request.setAlignment(alignment, step > 0 ? step : alignment);
+    }
+    request.setFirstAvailable(firstAvailable);
+    request.setPadding(padding);
+    request.setDeadline(deadline);
+    for (Map.Entry<String, Padding> entry : attendeePadding.entrySet()) {
+      request.setAttendeePadding(entry.getKey(), entry.getValue());
+    }
+    return request;
+  }
+
+  /** Writes {@code padding} as {"before": 10, "after": 5}. */
+  private static void writePadding(JsonWriter writer, Padding padding) throws IOException {
+    writer.beginObject();
+    writer.name("before").value(padding.getBefore());
+    writer.name("after").value(padding.getAfter());
+    writer.endObject();
+  }
+
+  private static Padding readPadding(JsonReader reader) throws IOException {
+    int before = 0;
+    int after = 0;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "before":
+          before = reader.nextInt();
+          break;
+        case "after":
+          after = reader.nextInt();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new Padding(before, after);
+  }
+}
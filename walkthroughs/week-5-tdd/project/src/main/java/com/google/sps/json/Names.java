@@ -0,0 +1,58 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.AttendeeNames;
+import java.io.IOException;
+import java.util.Collection;
+
+/** Helpers for the arrays of attendee names that several adapters share. */
+final class Names {
+  private Names() {
+    // Disallow instances.
+  }
+
+  /** Writes {@code names} as an array of strings. */
+  static void write(JsonWriter writer, Collection<String> names) throws IOException {
+    writer.beginArray();
+    for (String name : names) {
+      writer.value(name);
+    }
+    writer.endArray();
+  }
+
+  /** Reads an array of strings into {@code names}. */
+  static void read(JsonReader reader, Collection<String> names) throws IOException {
+    reader.beginArray();
+    while (reader.hasNext()) {
+      names.add(reader.nextString());
+    }
+    reader.endArray();
+  }
+
+  /**
+   * Reads an array of strings into {@code names}, interning each one. Only for names on events that
+   * will be stored.
+   */
+  static void readInterned(JsonReader reader, Collection<String> names) throws IOException {
+    reader.beginArray();
+    while (reader.hasNext()) {
+      names.add(AttendeeNames.intern(reader.nextString()));
+    }
+    reader.endArray();
+  }
+}
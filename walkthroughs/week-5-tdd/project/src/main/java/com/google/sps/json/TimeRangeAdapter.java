@@ -0,0 +1,54 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+
+/** Reads and writes a {@code TimeRange} as {"start": ..., "duration": ...}. */
+final class TimeRangeAdapter extends TypeAdapter<TimeRange> {
+  @Override
+  public void write(JsonWriter writer, TimeRange range) throws IOException {
+    writer.beginObject();
+    writer.name("start").value(range.start());
+    writer.name("duration").value(range.duration());
+    writer.endObject();
+  }
+
+  @Override
+  public TimeRange read(JsonReader reader) throws IOException {
+    int start = 0;
+    int duration = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "start":
+          start = reader.nextInt();
+          break;
+        case "duration":
+          duration = reader.nextInt();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return TimeRange.fromStartDuration(start, duration);
+  }
+}
@@ -0,0 +1,469 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.log;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.Metrics;
+import com.google.sps.json.Json;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Makes the changes to an {@link EventStore} durable, so that a restart does not lose them.
+ *
+ * <p>Every added or removed batch of events is appended to a log as one record: its length, a CRC32
+ * of its contents, then an operation byte and the events as JSON. A change only reaches the store
+ * once its record has been forced to disk. Writers that arrive while another writer is forcing the
+ * log are queued, and the next writer to get the lock writes and forces all of them at once, so a
+ * burst of writes costs one {@code force} rather than one each.
+ *
+ * <p>Every so often the log is compacted: a new log segment is started, the store snapshot at that
+ * point is written out in the same record format, and the segments it covers are deleted. On
+ * startup the latest complete snapshot is loaded and only the log segments after it are replayed. A
+ * record torn by a crash at the end of the last segment is cut off.
+ *
+ * <p>The directory holds {@code snapshot-<n>} files, each covering every segment before {@code
+ * log-<n>}, and the {@code log-<n>} segments themselves. Once it holds a log, the log is the only
+ * source of the store's events: whatever the store started with is only written out once, as the
+ * first snapshot of a new log.
+ */
+public final class EventLog implements Closeable {
+  private static final Logger logger = Logger.getLogger(EventLog.class.getName());
+
+  /** Compact after this many records by default. */
+  public static final int DEFAULT_COMPACT_AFTER_RECORDS = 10000;
+
+  private static final byte ADD = 'A';
+  private static final byte REMOVE = 'R';
+
+  // Snapshot records hold at most this many events each, so no record gets too large to read.
+  private static final int EVENTS_PER_SNAPSHOT_RECORD = 1000;
+
+  private static final String LOG_PREFIX = "log-";
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+  private static final Type EVENT_LIST = new TypeToken<List<Event>>() {}.getType();
+
+  /** A change waiting to be written. Its fields are only touched while holding the write lock. */
+  private static final class PendingWrite {
+    private final byte operation;
+    private final List<Event> events;
+    private final byte[] record;
+    private boolean done;
+    private IOException failure;
+
+    PendingWrite(byte operation, List<Event> events) {
+      this.operation = operation;
+      this.events = events;
+      this.record = encode(operation, events);
+    }
+  }
+
+  private final Path directory;
+  private final EventStore store;
+  private final int compactAfterRecords;
+  private final ConcurrentLinkedQueue<PendingWrite> pending = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final ReentrantLock compactionLock = new ReentrantLock();
+
+  // Guarded by writeLock.
+  private FileChannel channel;
+  private long segment;
+  private int recordsSinceSnapshot;
+  private IOException broken;
+
+  private EventLog(
+      Path directory,
+      EventStore store,
+      int compactAfterRecords,
+      long segment,
+      FileChannel channel) {
+    this.directory = directory;
+    this.store = store;
+    this.compactAfterRecords = compactAfterRecords;
+    this.segment = segment;
+    this.channel = channel;
+  }
+
+  /** Same as {@link #open(Path, EventStore, int)}, compacting every few thousand records. */
+  public static EventLog open(Path directory, EventStore store) throws IOException {
+    return open(directory, store, DEFAULT_COMPACT_AFTER_RECORDS);
+  }
+
+  /**
+   * Replaces the events in {@code store} with the ones logged in {@code directory}, then returns a
+   * log that appends further changes there. If the directory holds no log yet, it is created and
+   * the events already in {@code store} are kept and written out as its first snapshot.
+   *
+   * @param compactAfterRecords how many records to log before the log is compacted
+   * @throws IOException if the files cannot be read, or a snapshot or a record before the end of
+   *     the log is corrupt
+   */
+  public static EventLog open(Path directory, EventStore store, int compactAfterRecords)
+      throws IOException {
+    if (compactAfterRecords <= 0) {
+      throw new IllegalArgumentException("compactAfterRecords must be positive");
+    }
+
+    Files.createDirectories(directory);
+    TreeMap<Long, Path> snapshots = list(directory, SNAPSHOT_PREFIX);
+    TreeMap<Long, Path> logs = list(directory, LOG_PREFIX);
+
+    if (snapshots.isEmpty() && logs.isEmpty()) {
+      writeSnapshot(directory, /*covered=*/ 0, store.snapshot().getEvents());
+      FileChannel channel = openSegment(directory, 0);
+      return new EventLog(directory, store, compactAfterRecords, /*segment=*/ 0, channel);
+    }
+    // Whatever the store was built with went into the log's first snapshot, and may since have
+    // been removed, so only the log says what belongs in the store.
+    store.removeAll(store.snapshot().getEvents());
+
+    long first = 0;
+    if (!snapshots.isEmpty()) {
+      first = snapshots.lastKey();
+      List<Event> events = new ArrayList<>();
+      for (Record record : readAll(snapshots.lastEntry().getValue(), /*allowTornTail=*/ false)) {
+        events.addAll(record.events);
+      }
+      store.addAll(events);
+    }
+
+    long segment = first;
+    int replayed = 0;
+    for (Long index : logs.tailMap(first, true).keySet()) {
+      boolean last = index.equals(logs.lastKey());
+      for (Record record : readAll(logs.get(index), /*allowTornTail=*/ last)) {
+        if (record.operation == ADD) {
+          store.addAll(record.events);
+        } else {
+          store.removeAll(record.events);
+        }
+        replayed++;
+      }
+      segment = index;
+    }
+    logger.info(
+        String.format("loaded %d events after replaying %d records", store.size(), replayed));
+
+    FileChannel channel = openSegment(directory, segment);
+    EventLog log = new EventLog(directory, store, compactAfterRecords, segment, channel);
+    log.recordsSinceSnapshot = replayed;
+    return log;
+  }
+
+  /** Logs and then adds {@code events}. Returns once the change is on disk and in the store. */
+  public void addAll(Collection<Event> events) throws IOException {
+    write(new PendingWrite(ADD, new ArrayList<>(events)));
+  }
+
+  /** Logs and then removes {@code events}. Returns once the change is on disk and in the store. */
+  public void removeAll(Collection<Event> events) throws IOException {
+    write(new PendingWrite(REMOVE, new ArrayList<>(events)));
+  }
+
+  /**
+   * Writes the current store to a snapshot and deletes the log segments it covers. Writers are only
+   * held up while a new segment is started, since the snapshot is immutable and can be written out
+   * afterwards.
+   */
+  public void compact() throws IOException {
+    compactionLock.lock();
+    try {
+      long covered;
+      EventStore.Snapshot snapshot;
+      writeLock.lock();
+      try {
+        checkNotBroken();
+        FileChannel next = openSegment(directory, segment + 1);
+        channel.close();
+        channel = next;
+        covered = ++segment;
+        snapshot = store.snapshot();
+        recordsSinceSnapshot = 0;
+      } finally {
+        writeLock.unlock();
+      }
+
+      writeSnapshot(directory, covered, snapshot.getEvents());
+
+      // Only now is everything before the new segment safe to drop.
+      for (Path old : list(directory, SNAPSHOT_PREFIX).headMap(covered).values()) {
+        Files.delete(old);
+      }
+      for (Path old : list(directory, LOG_PREFIX).headMap(covered).values()) {
+        Files.delete(old);
+      }
+      Metrics.increment("event_log.compactions");
+    } finally {
+      compactionLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    writeLock.lock();
+    try {
+      channel.close();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Queues {@code write} and returns once it is on disk and applied, or has failed. */
+  private void write(PendingWrite write) throws IOException {
+    pending.add(write);
+    boolean compact;
+    writeLock.lock();
+    try {
+      // Whoever holds the lock writes everything queued so far. If an earlier writer already wrote
+      // this change along with its own, there is nothing left to do.
+      if (!write.done) {
+        flush();
+      }
+      if (write.failure != null) {
+        throw new IOException("could not log events", write.failure);
+      }
+      compact = recordsSinceSnapshot >= compactAfterRecords;
+    } finally {
+      writeLock.unlock();
+    }
+
+    // One writer compacts while the others carry on logging.
+    if (compact && compactionLock.tryLock()) {
+      try {
+        compact();
+      } finally {
+        compactionLock.unlock();
+      }
+    }
+  }
+
+  /** Writes and forces every queued change, then applies them to the store in log order. */
+  private void flush() {
+    List<PendingWrite> batch = new ArrayList<>();
+    int length = 0;
+    for (PendingWrite next = pending.poll(); next != null; next = pending.poll()) {
+      batch.add(next);
+      length += next.record.length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    for (PendingWrite write : batch) {
+      buffer.put(write.record);
+    }
+    buffer.flip();
+
+    long start = -1;
+    try {
+      checkNotBroken();
+      start = channel.position();
+      writeFully(channel, buffer);
+      channel.force(false);
+    } catch (IOException e) {
+      fail(batch, e, start);
+      return;
+    }
+
+    for (PendingWrite write : batch) {
+      if (write.operation == ADD) {
+        store.addAll(write.events);
+      } else {
+        store.removeAll(write.events);
+      }
+      write.done = true;
+    }
+    recordsSinceSnapshot += batch.size();
+    Metrics.increment("event_log.forces");
+    Metrics.add("event_log.records", batch.size());
+  }
+
+  /**
+   * Fails every write in {@code batch}. Anything written from {@code start} on is cut off, so that
+   * later records are not hidden behind a partial one; if that is not possible, the log stops
+   * accepting writes.
+   */
+  private void fail(List<PendingWrite> batch, IOException failure, long start) {
+    for (PendingWrite write : batch) {
+      write.failure = failure;
+      write.done = true;
+    }
+    if (start < 0) {
+      return;
+    }
+    try {
+      channel.truncate(start);
+      channel.position(start);
+    } catch (IOException e) {
+      broken = e;
+    }
+  }
+
+  private void checkNotBroken() throws IOException {
+    if (broken != null) {
+      throw new IOException("event log is unusable after a failed write", broken);
+    }
+  }
+
+  /** One decoded record. */
+  private static final class Record {
+    private final byte operation;
+    private final List<Event> events;
+
+    Record(byte operation, List<Event> events) {
+      this.operation = operation;
+      this.events = events;
+    }
+  }
+
+  /** Writes {@code events} out as the snapshot covering every segment before {@code covered}. */
+  private static void writeSnapshot(Path directory, long covered, List<Event> events)
+      throws IOException {
+    // Write the snapshot under a temporary name, so a crash never leaves a partial one behind.
+    Path temporary = directory.resolve(SNAPSHOT_PREFIX + covered + ".tmp");
+    try (FileChannel out =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      for (int i = 0; i < events.size(); i += EVENTS_PER_SNAPSHOT_RECORD) {
+        List<Event> chunk =
+            events.subList(i, Math.min(events.size(), i + EVENTS_PER_SNAPSHOT_RECORD));
+        writeFully(out, ByteBuffer.wrap(encode(ADD, chunk)));
+      }
+      out.force(true);
+    }
+    Files.move(
+        temporary, directory.resolve(SNAPSHOT_PREFIX + covered), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static byte[] encode(byte operation, List<Event> events) {
+    byte[] json = Json.GSON.toJson(events, EVENT_LIST).getBytes(StandardCharsets.UTF_8);
+    CRC32 crc = new CRC32();
+    crc.update(operation);
+    crc.update(json);
+    ByteBuffer record = ByteBuffer.allocate(Integer.BYTES * 2 + 1 + json.length);
+    record.putInt(1 + json.length);
+    record.putInt((int) crc.getValue());
+    record.put(operation);
+    record.put(json);
+    return record.array();
+  }
+
+  /**
+   * Reads every record in {@code file}. If {@code allowTornTail} is set, a truncated or corrupt
+   * record is taken to be a write cut short by a crash: it and everything after it are cut off.
+   */
+  private static List<Record> readAll(Path file, boolean allowTornTail) throws IOException {
+    List<Record> records = new ArrayList<>();
+    long size = Files.size(file);
+    long good = 0;
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      DataInputStream data = new DataInputStream(in);
+      while (good < size) {
+        Record record;
+        try {
+          int length = data.readInt();
+          int checksum = data.readInt();
+          if (length <= 0 || length > size - good - Integer.BYTES * 2) {
+            throw new IOException("bad record length " + length);
+          }
+          byte[] payload = new byte[length];
+          data.readFully(payload);
+          CRC32 crc = new CRC32();
+          crc.update(payload);
+          if ((int) crc.getValue() != checksum) {
+            throw new IOException("bad record checksum");
+          }
+          byte operation = payload[0];
+          if (operation != ADD && operation != REMOVE) {
+            throw new IOException("bad record operation " + operation);
+          }
+          List<Event> events =
+              Json.GSON.fromJson(
+                  new String(payload, 1, length - 1, StandardCharsets.UTF_8), EVENT_LIST);
+          record = new Record(operation, events);
+          good += Integer.BYTES * 2 + length;
+        } catch (IOException | JsonParseException | IllegalArgumentException e) {
+          if (!allowTornTail) {
+            throw new IOException(String.format("corrupt record in %s at %d", file, good), e);
+          }
+          logger.warning(String.format("cutting off torn record in %s at %d", file, good));
+          break;
+        }
+        records.add(record);
+      }
+      if (good == size) {
+        return records;
+      }
+    }
+
+    try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      out.truncate(good);
+      out.force(true);
+    }
+    return records;
+  }
+
+  /** Returns the files in {@code directory} named {@code prefix} and a number, by number. */
+  private static TreeMap<Long, Path> list(Path directory, String prefix) throws IOException {
+    TreeMap<Long, Path> files = new TreeMap<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+      for (Path file : stream) {
+        String suffix = file.getFileName().toString().substring(prefix.length());
+        if (suffix.matches("[0-9]+")) {
+          files.put(Long.parseLong(suffix), file);
+        }
+      }
+    }
+    return files;
+  }
+
+  private static FileChannel openSegment(Path directory, long segment) throws IOException {
+    return FileChannel.open(
+        directory.resolve(LOG_PREFIX + segment),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.Gson;
+import com.google.sps.AvailabilityHistogram;
+import com.google.sps.Events;
+import com.google.sps.TimeRange;
+import com.google.sps.json.Json;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns, for every minute between {@code start} and {@code end}, how many of the comma-separated
+ * {@code attendees} are free, as runs of minutes with the same count. The horizon defaults to the
+ * whole day and may be at most {@link #MAX_HORIZON_MINUTES} long.
+ */
+@WebServlet("/availability")
+public class AvailabilityServlet extends HttpServlet {
+  /** The longest horizon a request may ask for: the days searches look ahead. */
+  static final int MAX_HORIZON_MINUTES = Events.HORIZON_DAYS * TimeRange.WHOLE_DAY.duration();
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String attendeesParameter = request.getParameter("attendees");
+    List<String> attendees =
+        attendeesParameter == null || attendeesParameter.trim().isEmpty()
+            ? Arrays.<String>asList()
+            : Arrays.asList(attendeesParameter.trim().split("\\s*,\\s*"));
+
+    TimeRange horizon;
+    try {
+      int start = getIntParameter(request, "start", TimeRange.WHOLE_DAY.start());
+      int end = getIntParameter(request, "end", TimeRange.WHOLE_DAY.end());
+      if (end < start) {
+        throw new IllegalArgumentException("end comes before start");
+      }
+      if ((long) end - start > MAX_HORIZON_MINUTES) {
+        throw new IllegalArgumentException(
+            "horizon cannot be longer than " + MAX_HORIZON_MINUTES + " minutes");
+      }
+      horizon = TimeRange.fromStartEnd(start, end, false);
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    AvailabilityHistogram histogram = AvailabilityHistogram.of(Events.store, attendees, horizon);
+
+    // Send the JSON back as the response
+    Gson gson = Json.GSON;
+    response.setContentType("application/json");
+    response.getWriter().println(gson.toJson(histogram));
+  }
+
+  /** Returns the named request parameter as an int, or {@code defaultValue} if it is missing. */
+  private static int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+    String value = request.getParameter(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    return Integer.parseInt(value.trim());
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.DoubleBookingReport;
+import com.google.sps.Event;
+import com.google.sps.Events;
+import com.google.sps.json.Json;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reports every attendee whose own events overlap, as newline-delimited JSON with one conflict per
+ * line, e.g. {"attendee": "Ava", "first": {...}, "second": {...}}. Lines are written as the
+ * conflicts are found, so the report is never held in memory, and the report stops as soon as a
+ * line cannot be written.
+ */
+@WebServlet("/double-bookings")
+public class DoubleBookingServlet extends HttpServlet {
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    response.setContentType("application/x-ndjson");
+    final PrintWriter out = response.getWriter();
+    final TypeAdapter<Event> eventAdapter = Json.GSON.getAdapter(Event.class);
+    try {
+      DoubleBookingReport.run(
+          Events.store.snapshot(),
+          conflict -> {
+            // Conflicts arrive from several threads; keep each line whole.
+            synchronized (out) {
+              try {
+                JsonWriter writer = new JsonWriter(out);
+                writer.beginObject();
+                writer.name("attendee").value(conflict.getAttendee());
+                writer.name("first");
+                eventAdapter.write(writer, conflict.getFirst());
+                writer.name("second");
+                eventAdapter.write(writer, conflict.getSecond());
+                writer.endObject();
+                writer.flush();
+                out.print('\n');
+                // The response's writer swallows I/O errors, e.g. once the client has gone, so
+                // ask it, and stop the report rather than keep sweeping for nobody.
+                if (out.checkError()) {
+                  throw new IOException("could not write the double-booking report");
+                }
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    out.flush();
+  }
+}
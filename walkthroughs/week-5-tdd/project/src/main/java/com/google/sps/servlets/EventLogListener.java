@@ -0,0 +1,70 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.Events;
+import com.google.sps.log.EventLog;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Reloads the events imported before the last restart and logs the ones imported from now on, if
+ * the {@code EVENT_LOG_DIR} environment variable names a directory to keep the log in. Without it,
+ * imported events only live as long as the instance.
+ */
+@WebListener
+public class EventLogListener implements ServletContextListener {
+  private static final Logger logger = Logger.getLogger(EventLogListener.class.getName());
+
+  private static volatile EventLog log;
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    String directory = System.getenv("EVENT_LOG_DIR");
+    if (directory == null || directory.isEmpty()) {
+      return;
+    }
+    try {
+      log = EventLog.open(Paths.get(directory), Events.store);
+    } catch (IOException e) {
+      // Serving without the logged events would silently lose data, so refuse to start.
+      throw new UncheckedIOException("could not load the event log in " + directory, e);
+    }
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    EventLog current = log;
+    log = null;
+    if (current != null) {
+      try {
+        current.close();
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "could not close the event log", e);
+      }
+    }
+  }
+
+  /** Returns the event log, or {@code null} if changes are not being logged. */
+  static EventLog getLog() {
+    return log;
+  }
+}
@@ -0,0 +1,225 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.EventStore;
+import com.google.sps.Events;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Iterator;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Exports when attendees are busy, without the events' titles or other attendees. Each attendee's
+ * busy times are merged into disjoint blocks and written straight to the response, one attendee at
+ * a time, so memory use does not grow with the number of attendees.
+ *
+ * <p>GET takes the comma-separated {@code attendees} parameter. POST takes a JSON array of names as
+ * its body, which is read one name at a time, for lists too long for a URL.
+ *
+ * <p>With {@code format=json} (the default) the response is {"attendees": [{"attendee": "Ava",
+ * "busy": [[540, 600], ...]}, ...]}, in minutes of the day. With {@code format=ics} it is an
+ * iCalendar object with one VFREEBUSY per attendee and one FREEBUSY line per block, on the UTC
+ * {@code date} given as yyyy-mm-dd (today by default).
+ */
+@WebServlet("/freebusy")
+public class FreeBusyServlet extends HttpServlet {
+  private static final DateTimeFormatter ICS_DATE_TIME =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+  /** Writes one attendee's blocks at a time in one of the export formats. */
+  private abstract static class Exporter {
+    abstract void begin() throws IOException;
+
+    abstract void attendee(String attendee, Iterator<TimeRange> busyTimes) throws IOException;
+
+    abstract void end() throws IOException;
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Exporter exporter = getExporter(request, response);
+    if (exporter == null) {
+      return;
+    }
+
+    EventStore.Snapshot snapshot = Events.store.snapshot();
+    String attendees = request.getParameter("attendees");
+    exporter.begin();
+    if (attendees != null && !attendees.trim().isEmpty()) {
+      for (String attendee : attendees.trim().split("\\s*,\\s*")) {
+        exporter.attendee(attendee, snapshot.getBusyTimes(Collections.singleton(attendee)));
+      }
+    }
+    exporter.end();
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Exporter exporter = getExporter(request, response);
+    if (exporter == null) {
+      return;
+    }
+
+    EventStore.Snapshot snapshot = Events.store.snapshot();
+    JsonReader reader = new JsonReader(request.getReader());
+    try {
+      reader.beginArray();
+      exporter.begin();
+      while (reader.hasNext()) {
+        String attendee = reader.nextString();
+        exporter.attendee(attendee, snapshot.getBusyTimes(Collections.singleton(attendee)));
+      }
+      reader.endArray();
+    } catch (IllegalStateException | IOException e) {
+      // The response may already be partly written, so all that can be done is to stop.
+      if (!response.isCommitted()) {
+        response.reset();
+        response.sendError(
+            HttpServletResponse.SC_BAD_REQUEST, "Bad attendee list: " + e.getMessage());
+        return;
+      }
+      throw e;
+    }
+    exporter.end();
+  }
+
+  /** Returns the exporter for the requested format, or sends an error and returns {@code null}. */
+  private static Exporter getExporter(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    String format = request.getParameter("format");
+    if (format == null || format.equals("json")) {
+      response.setContentType("application/json");
+      return new JsonExporter(response.getWriter());
+    }
+    if (!format.equals("ics")) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown format: " + format);
+      return null;
+    }
+
+    LocalDate date;
+    try {
+      String dateParameter = request.getParameter("date");
+      date = dateParameter == null ? LocalDate.now(ZoneOffset.UTC) : LocalDate.parse(dateParameter);
+    } catch (DateTimeParseException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad date: " + e.getMessage());
+      return null;
+    }
+    response.setContentType("text/calendar");
+    return new IcsExporter(response.getWriter(), date);
+  }
+
+  private static final class JsonExporter extends Exporter {
+    private final JsonWriter writer;
+
+    JsonExporter(PrintWriter out) {
+      this.writer = new JsonWriter(out);
+    }
+
+    @Override
+    void begin() throws IOException {
+      writer.beginObject();
+      writer.name("attendees").beginArray();
+    }
+
+    @Override
+    void attendee(String attendee, Iterator<TimeRange> busyTimes) throws IOException {
+      writer.beginObject();
+      writer.name("attendee").value(attendee);
+      writer.name("busy").beginArray();
+      while (busyTimes.hasNext()) {
+        TimeRange busy = busyTimes.next();
+        writer.beginArray().value(busy.start()).value(busy.end()).endArray();
+      }
+      writer.endArray();
+      writer.endObject();
+    }
+
+    @Override
+    void end() throws IOException {
+      writer.endArray();
+      writer.endObject();
+      writer.flush();
+    }
+  }
+
+  private static final class IcsExporter extends Exporter {
+    private final PrintWriter out;
+    private final LocalDate date;
+    private final String stamp;
+
+    IcsExporter(PrintWriter out, LocalDate date) {
+      this.out = out;
+      this.date = date;
+      this.stamp = ICS_DATE_TIME.format(LocalDateTime.now(ZoneOffset.UTC));
+    }
+
+    @Override
+    void begin() {
+      line("BEGIN:VCALENDAR");
+      line("VERSION:2.0");
+      line("PRODID:-//Google SPS//Free busy export//EN");
+      line("METHOD:PUBLISH");
+    }
+
+    @Override
+    void attendee(String attendee, Iterator<TimeRange> busyTimes) {
+      line("BEGIN:VFREEBUSY");
+      line("DTSTAMP:" + stamp);
+      line("DTSTART:" + ICS_DATE_TIME.format(date.atStartOfDay()));
+      line("DTEND:" + ICS_DATE_TIME.format(date.plusDays(1).atStartOfDay()));
+      line("ATTENDEE;CN=\"" + attendee.replace("\"", "'") + "\":" + attendee.replace(" ", "%20"));
+      while (busyTimes.hasNext()) {
+        TimeRange busy = busyTimes.next();
+        line(
+            String.format(
+                "FREEBUSY;FBTYPE=BUSY:%s/PT%dM",
+                ICS_DATE_TIME.format(date.atStartOfDay().plusMinutes(busy.start())),
+                busy.duration()));
+      }
+      line("END:VFREEBUSY");
+    }
+
+    @Override
+    void end() {
+      line("END:VCALENDAR");
+      out.flush();
+    }
+
+    /** Writes one content line, folded at 75 characters as iCalendar requires. */
+    private void line(String content) {
+      // Continuation lines start with a space, which counts towards their 75.
+      int end = Math.min(content.length(), 75);
+      out.print(content.substring(0, end));
+      for (int start = end; start < content.length(); start += 74) {
+        out.print("\r\n ");
+        out.print(content.substring(start, Math.min(content.length(), start + 74)));
+      }
+      out.print("\r\n");
+    }
+  }
+}
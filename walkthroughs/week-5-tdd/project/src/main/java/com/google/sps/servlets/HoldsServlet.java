@@ -0,0 +1,119 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.Event;
+import com.google.sps.Events;
+import com.google.sps.TimeRange;
+import com.google.sps.hold.Hold;
+import com.google.sps.hold.Holds;
+import com.google.sps.json.Json;
+import com.google.sps.log.EventLog;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tentative bookings. POST an event to hold its time for all of its attendees, POST with {@code
+ * ?confirm=<id>} to turn a hold into the event, and DELETE with {@code ?id=<id>} to give the time
+ * back. Holds expire after {@link Holds#DEFAULT_TTL_SECONDS} if not confirmed. Confirmed events go
+ * through the event log if {@link EventLogListener} keeps one.
+ */
+@WebServlet("/holds")
+public class HoldsServlet extends HttpServlet {
+  private Holds holds;
+
+  @Override
+  public void init() {
+    holds = Holds.start(Events.store, Holds.DEFAULT_TTL_SECONDS);
+  }
+
+  @Override
+  public void destroy() {
+    holds.close();
+  }
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String confirm = request.getParameter("confirm");
+    if (confirm != null) {
+      Long id = parseId(confirm, response);
+      if (id == null) {
+        return;
+      }
+      EventLog log = EventLogListener.getLog();
+      Event event = holds.confirm(id, log != null ? log::addAll : Events.store::addAll);
+      if (event == null) {
+        response.sendError(HttpServletResponse.SC_NOT_FOUND, "No such hold, or it has expired");
+        return;
+      }
+      response.setContentType("application/json");
+      response.getWriter().println(Json.GSON.toJson(event));
+      return;
+    }
+
+    Event event;
+    try {
+      event = Json.GSON.fromJson(request.getReader(), Event.class);
+    } catch (RuntimeException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad event: " + e.getMessage());
+      return;
+    }
+    if (event == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad event: empty body");
+      return;
+    }
+    Hold hold = holds.hold(event.getTitle(), event.getWhen(), event.getAttendees());
+    if (hold == null) {
+      response.sendError(HttpServletResponse.SC_CONFLICT, "Some attendees are not free then");
+      return;
+    }
+
+    response.setContentType("application/json");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginObject();
+    writer.name("id").value(hold.getId());
+    writer.name("when");
+    Json.GSON.toJson(hold.getWhen(), TimeRange.class, writer);
+    writer.name("expires_in_seconds").value(Holds.DEFAULT_TTL_SECONDS);
+    writer.endObject();
+    writer.flush();
+  }
+
+  @Override
+  public void doDelete(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    Long id = parseId(request.getParameter("id"), response);
+    if (id == null) {
+      return;
+    }
+    if (!holds.release(id)) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, "No such hold");
+    }
+  }
+
+  /** Returns {@code id} as a number, or sends a 400 and returns {@code null} if it is not one. */
+  private static Long parseId(String id, HttpServletResponse response) throws IOException {
+    try {
+      return Long.parseLong(id);
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad hold id: " + id);
+      return null;
+    }
+  }
+}
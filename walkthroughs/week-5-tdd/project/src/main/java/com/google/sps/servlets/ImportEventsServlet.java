@@ -0,0 +1,116 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.Event;
+import com.google.sps.Events;
+import com.google.sps.json.Json;
+import com.google.sps.log.EventLog;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Bulk-loads events from newline-delimited JSON, one event per line in the same shape that
+ * /get-events returns. The body is parsed as a stream, so it is never held in memory as text, and
+ * the parsed events are added to the store in one batch so the store's indexes are merged once.
+ * DELETE takes the same body and removes one stored event equal to each event in it.
+ *
+ * <p>If {@link EventLogListener} keeps an event log, changes are logged before they reach the store
+ * and the response is only sent once they are on disk.
+ */
+@WebServlet("/import-events")
+public class ImportEventsServlet extends HttpServlet {
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<Event> events = readEvents(request, response);
+    if (events == null) {
+      return;
+    }
+
+    EventLog log = EventLogListener.getLog();
+    if (log != null) {
+      log.addAll(events);
+    } else {
+      Events.store.addAll(events);
+    }
+    sendCount(response, "added", events.size());
+  }
+
+  @Override
+  public void doDelete(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    List<Event> events = readEvents(request, response);
+    if (events == null) {
+      return;
+    }
+
+    EventLog log = EventLogListener.getLog();
+    if (log != null) {
+      log.removeAll(events);
+    } else {
+      Events.store.removeAll(events);
+    }
+    sendCount(response, "removed", events.size());
+  }
+
+  /** Returns the events in the request body, or sends an error and returns {@code null}. */
+  private static List<Event> readEvents(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    TypeAdapter<Event> eventAdapter = Json.GSON.getAdapter(Event.class);
+    List<Event> events = new ArrayList<>();
+    JsonReader reader = new JsonReader(request.getReader());
+    // Lenient mode lets the reader accept one top-level value after another.
+    reader.setLenient(true);
+    try {
+      while (reader.peek() != JsonToken.END_DOCUMENT) {
+        events.add(eventAdapter.read(reader));
+      }
+    } catch (IllegalArgumentException
+        | IllegalStateException
+        | JsonParseException
+        | IOException e) {
+      // Truncated or malformed JSON shows up as an IOException from the reader, e.g. an
+      // EOFException or a MalformedJsonException.
+      if (!response.isCommitted()) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad event: " + e.getMessage());
+        return null;
+      }
+      throw e;
+    }
+    return events;
+  }
+
+  /** Sends the number of events changed and the new total back as the response. */
+  private static void sendCount(HttpServletResponse response, String name, int count)
+      throws IOException {
+    response.setContentType("application/json");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginObject();
+    writer.name(name).value(count);
+    writer.name("total").value(Events.store.size());
+    writer.endObject();
+    writer.flush();
+  }
+}
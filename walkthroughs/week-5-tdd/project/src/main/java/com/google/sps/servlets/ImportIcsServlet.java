@@ -0,0 +1,55 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.Events;
+import com.google.sps.ics.IcsImporter;
+import com.google.sps.log.EventLog;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Imports the VEVENTs of an iCalendar (.ics) body into the store. The body is parsed as a stream
+ * while earlier batches are being added, so large exports are never held in memory. Events go
+ * through the event log if {@link EventLogListener} keeps one.
+ */
+@WebServlet("/import-ics")
+public class ImportIcsServlet extends HttpServlet {
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    EventLog log = EventLogListener.getLog();
+    IcsImporter.Sink sink = log != null ? log::addAll : Events.store::addAll;
+    int added;
+    try {
+      added = IcsImporter.importAll(request.getReader(), sink, IcsImporter.DEFAULT_BATCH_SIZE);
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad calendar: " + e.getMessage());
+      return;
+    }
+
+    // Send the number of events added back as the response
+    response.setContentType("application/json");
+    JsonWriter writer = new JsonWriter(response.getWriter());
+    writer.beginObject();
+    writer.name("added").value(added);
+    writer.name("total").value(Events.store.size());
+    writer.endObject();
+    writer.flush();
+  }
+}
@@ -14,14 +14,19 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.EventStore;
 import com.google.sps.Events;
+import com.google.sps.Explanation;
 import com.google.sps.FindMeetingQuery;
 import com.google.sps.MeetingRequest;
-import com.google.sps.TimeRange;
+import com.google.sps.Recurrence;
+import com.google.sps.json.Json;
+import com.google.sps.trace.QueryTrace;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -31,21 +36,113 @@ import javax.servlet.http.HttpServletResponse;
 public class QueryServlet extends HttpServlet {
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
+    Gson gson = Json.GSON;
 
-    // Convert the JSON to an instance of MeetingRequest.
-    MeetingRequest meetingRequest = gson.fromJson(request.getReader(), MeetingRequest.class);
+    // Convert the JSON to an instance of MeetingRequest. The span ends however parsing goes.
+    QueryTrace.Span parse = QueryTrace.begin(QueryTrace.Phase.PARSE);
+    MeetingRequest meetingRequest;
+    try {
+      meetingRequest = readMeetingRequest(request, response);
+      if (meetingRequest != null) {
+        parse.setAttendees(
+            meetingRequest.getAttendees().size() + meetingRequest.getOptionalAttendees().size());
+      }
+    } finally {
+      parse.end();
+    }
+    if (meetingRequest == null) {
+      return;
+    }
 
-    // Find the possible meeting times.
-    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
-    Collection<TimeRange> answer =
-        findMeetingQuery.query(Arrays.asList(Events.events), meetingRequest);
+    // A period parameter asks for a recurring meeting, e.g. period=10080&occurrences=13 for weekly
+    // over a quarter, optionally only needing to work in some of them with required=12.
+    Recurrence recurrence = null;
+    String period = request.getParameter("period");
+    if (period != null) {
+      try {
+        int occurrences = Integer.parseInt(request.getParameter("occurrences"));
+        String required = request.getParameter("required");
+        recurrence =
+            new Recurrence(
+                Integer.parseInt(period),
+                occurrences,
+                required == null ? occurrences : Integer.parseInt(required));
+      } catch (IllegalArgumentException e) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad recurrence: " + e.getMessage());
+        return;
+      }
+    }
 
-    // Convert the times to JSON
-    String jsonResponse = gson.toJson(answer);
+    // Find the possible meeting times, paired with a free room if the meeting needs one.
+    // Every pass of the query reads the same snapshot, whatever is written meanwhile.
+    FindMeetingQuery findMeetingQuery = new FindMeetingQuery();
+    EventStore.Snapshot snapshot = Events.store.snapshot();
+    Object answer;
+    int results;
+    if (Boolean.parseBoolean(request.getParameter("explain"))) {
+      // Say who blocks which times instead of listing the times that work.
+      Collection<String> attendees = new HashSet<>(meetingRequest.getAttendees());
+      attendees.addAll(meetingRequest.getOptionalAttendees());
+      Explanation explanation = Explanation.of(snapshot, attendees);
+      answer = explanation;
+      results = explanation.getSegments().size();
+    } else {
+      Collection<?> times;
+      if (Boolean.parseBoolean(request.getParameter("horizon"))) {
+        // Look over the coming days rather than a single one.
+        times = findMeetingQuery.queryHorizon(Events.pyramid, meetingRequest);
+      } else if (recurrence != null) {
+        times = findMeetingQuery.querySeries(snapshot, meetingRequest, recurrence);
+      } else if (meetingRequest.needsRoom()) {
+        times = findMeetingQuery.queryWithRooms(snapshot, meetingRequest, Events.rooms);
+      } else {
+        times = findMeetingQuery.query(snapshot, meetingRequest);
+      }
+      answer = times;
+      results = times.size();
+    }
 
-    // Send the JSON back as the response
+    // Send the JSON back as the response, saying whether the deadline cut the search short.
+    if (meetingRequest.getDeadline().isReached()) {
+      response.setHeader("X-Partial-Results", "true");
+    }
+    QueryTrace.Span serialize = QueryTrace.begin(QueryTrace.Phase.SERIALIZE);
     response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    try {
+      response.getWriter().println(gson.toJson(answer));
+      serialize.setResults(results);
+    } finally {
+      serialize.end();
+    }
+  }
+
+  /**
+   * Reads the meeting request in the body of {@code request}, with its groups expanded. If it is
+   * malformed, sends a 400 and returns {@code null}.
+   */
+  private static MeetingRequest readMeetingRequest(
+      HttpServletRequest request, HttpServletResponse response) throws IOException {
+    MeetingRequest meetingRequest;
+    try {
+      meetingRequest = Json.GSON.fromJson(request.getReader(), MeetingRequest.class);
+    } catch (IllegalArgumentException | JsonParseException e) {
+      // e.g. a step that is not a multiple of the alignment, or negative padding.
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST, "Bad meeting request: " + e.getMessage());
+      return null;
+    }
+    if (meetingRequest == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Bad meeting request: empty body");
+      return null;
+    }
+
+    // Invite the people in any groups or distribution lists rather than the lists themselves.
+    try {
+      meetingRequest = Events.groups.expand(meetingRequest);
+    } catch (IllegalStateException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+      return null;
+    }
+    return meetingRequest;
   }
 }
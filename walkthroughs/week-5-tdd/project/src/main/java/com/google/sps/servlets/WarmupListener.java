@@ -0,0 +1,188 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.gson.reflect.TypeToken;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.Events;
+import com.google.sps.Explanation;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.Metrics;
+import com.google.sps.Recurrence;
+import com.google.sps.TimeRange;
+import com.google.sps.json.Json;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Gets the instance ready for traffic as soon as it starts, instead of making the first /query pay
+ * for it. In the background it builds the event indexes and then replays a recorded set of
+ * representative /query calls (warmup-requests.json) through the whole query path so that the JIT
+ * compiles it. Each recorded call holds the request body and any of the period, occurrences,
+ * required, horizon and explain parameters, so series, horizon and explain queries are warmed too.
+ * A query over many sparse calendars is replayed as well, since the sample events are too few for
+ * the bitmap plan. {@link WarmupServlet} only reports the instance ready once this is done.
+ *
+ * <p>Nothing the replays do is counted in {@link Metrics}, so the counters only reflect real
+ * traffic.
+ */
+@WebListener
+public class WarmupListener implements ServletContextListener {
+  private static final Logger logger = Logger.getLogger(WarmupListener.class.getName());
+
+  // How many times each recorded request is replayed. Enough for the JIT to compile the hot loops.
+  private static final int ITERATIONS_PER_REQUEST = 2000;
+
+  // Calendars for the bitmap replay: many attendees, only some of them busy, once an hour.
+  private static final int SPARSE_ATTENDEES = 100;
+  private static final int SPARSE_BUSY_ATTENDEES = 10;
+
+  private static final CountDownLatch ready = new CountDownLatch(1);
+
+  /** One recorded /query call: its body and the query parameters it set. */
+  private static final class RecordedQuery {
+    private MeetingRequest request;
+    // A period of zero means the call was not for a series. No required means every occurrence.
+    private int period;
+    private int occurrences;
+    private int required;
+    private boolean horizon;
+    private boolean explain;
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    Thread warmup = new Thread(WarmupListener::warmUp, "warmup");
+    warmup.setDaemon(true);
+    warmup.start();
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {}
+
+  /** Returns true once warm-up has finished. */
+  public static boolean isReady() {
+    return ready.getCount() == 0;
+  }
+
+  /** Waits up to {@code timeout} for warm-up to finish, and returns whether it has. */
+  public static boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+    return ready.await(timeout, unit);
+  }
+
+  private static void warmUp() {
+    long startNanos = System.nanoTime();
+    try {
+      // Loading Events builds the store, including every attendee's busy blocks.
+      EventStore.Snapshot snapshot = Events.store.snapshot();
+      List<RecordedQuery> recorded = loadRecordedQueries();
+      List<String> sparseAttendees = new ArrayList<>();
+      for (int i = 0; i < SPARSE_ATTENDEES; i++) {
+        sparseAttendees.add("Warm-up " + i);
+      }
+      EventStore.Snapshot sparse = sparseStore(sparseAttendees).snapshot();
+      MeetingRequest sparseRequest = new MeetingRequest(sparseAttendees, 30);
+
+      FindMeetingQuery query = new FindMeetingQuery();
+      Metrics.uncounted(
+          () -> {
+            for (int i = 0; i < ITERATIONS_PER_REQUEST; i++) {
+              for (RecordedQuery call : recorded) {
+                replay(query, snapshot, call);
+              }
+              Json.GSON.toJson(query.query(sparse, sparseRequest));
+            }
+          });
+      logger.info(
+          String.format(
+              "Warm-up replayed %d requests in %d ms",
+              (recorded.size() + 1) * ITERATIONS_PER_REQUEST,
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+    } catch (IOException | RuntimeException e) {
+      // A failed warm-up only costs latency, so still let the instance take traffic.
+      logger.log(Level.WARNING, "Warm-up failed", e);
+    } finally {
+      ready.countDown();
+    }
+  }
+
+  /** Answers {@code call} the way {@link QueryServlet} would. */
+  private static void replay(
+      FindMeetingQuery query, EventStore.Snapshot snapshot, RecordedQuery call) {
+    // Go through JSON both ways, as a real request would.
+    MeetingRequest request =
+        Json.GSON.fromJson(Json.GSON.toJson(call.request), MeetingRequest.class);
+    Object answer;
+    if (call.explain) {
+      Collection<String> attendees = new HashSet<>(request.getAttendees());
+      attendees.addAll(request.getOptionalAttendees());
+      answer = Explanation.of(snapshot, attendees);
+    } else if (call.horizon) {
+      answer = query.queryHorizon(Events.pyramid, request);
+    } else if (call.period > 0) {
+      int required = call.required > 0 ? call.required : call.occurrences;
+      answer =
+          query.querySeries(
+              snapshot, request, new Recurrence(call.period, call.occurrences, required));
+    } else if (request.needsRoom()) {
+      answer = query.queryWithRooms(snapshot, request, Events.rooms);
+    } else {
+      answer = query.query(snapshot, request);
+    }
+    Json.GSON.toJson(answer);
+  }
+
+  /** Returns a store in which a few of {@code attendees} are busy for half of every hour. */
+  private static EventStore sparseStore(List<String> attendees) {
+    List<Event> events = new ArrayList<>();
+    for (String attendee : attendees.subList(0, SPARSE_BUSY_ATTENDEES)) {
+      for (int hour = 0; hour < 24; hour++) {
+        events.add(
+            new Event(
+                "Warm-up",
+                TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(hour, 0), 30),
+                Collections.singleton(attendee)));
+      }
+    }
+    return new EventStore(events);
+  }
+
+  private static List<RecordedQuery> loadRecordedQueries() throws IOException {
+    InputStream stream = WarmupListener.class.getResourceAsStream("/warmup-requests.json");
+    if (stream == null) {
+      throw new IOException("warmup-requests.json is missing");
+    }
+    try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+      return Json.GSON.fromJson(reader, new TypeToken<List<RecordedQuery>>() {}.getType());
+    }
+  }
+}
@@ -0,0 +1,50 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * App Engine's warm-up request. It waits for {@link WarmupListener} to finish and only answers 200
+ * once the instance is ready, so App Engine holds traffic back until then.
+ */
+@WebServlet("/_ah/warmup")
+public class WarmupServlet extends HttpServlet {
+  // App Engine gives up on a warm-up request after a minute, so answer before that.
+  private static final long MAX_WAIT_SECONDS = 50;
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    boolean isReady;
+    try {
+      isReady = WarmupListener.awaitReady(MAX_WAIT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      isReady = false;
+    }
+
+    if (!isReady) {
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Still warming up");
+      return;
+    }
+    response.setContentType("text/plain");
+    response.getWriter().println("ready");
+  }
+}
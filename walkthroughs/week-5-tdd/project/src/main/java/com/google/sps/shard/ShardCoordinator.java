@@ -0,0 +1,236 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.shard;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.sps.BusyTimeSource;
+import com.google.sps.Event;
+import com.google.sps.TimeRange;
+import com.google.sps.json.Json;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Spreads attendees over several {@link ShardWorker}s by hashing their names, so that no single JVM
+ * has to hold every calendar. To find when a group is busy, the coordinator sends each shard the
+ * group members it owns, in parallel, and merges the disjoint intervals the shards send back. Pass
+ * the coordinator to {@code FindMeetingQuery.query} to run the final gap computation.
+ *
+ * <p>Connections to the shards are kept open and reused across requests. A connection that fails is
+ * closed rather than reused.
+ */
+public final class ShardCoordinator implements BusyTimeSource, Closeable {
+  /** One open connection to a shard. Used by one request at a time. */
+  private static final class Connection implements Closeable {
+    private final Socket socket;
+    private final Writer writer;
+    private final BufferedReader reader;
+
+    Connection(InetSocketAddress address) throws IOException {
+      socket = new Socket(address.getAddress(), address.getPort());
+      writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+      reader =
+          new BufferedReader(
+              new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // Nothing more to do with a connection we are dropping.
+      }
+    }
+  }
+
+  private final List<InetSocketAddress> shards;
+  private final ExecutorService scatter;
+  // Idle connections to each shard, ready for the next request.
+  private final List<Queue<Connection>> idle = new ArrayList<>();
+
+  /** Creates a coordinator for the workers at {@code shards}. The order decides who owns whom. */
+  public ShardCoordinator(List<InetSocketAddress> shards) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("shards cannot be empty");
+    }
+    this.shards = new ArrayList<>(shards);
+    this.scatter = Executors.newFixedThreadPool(shards.size());
+    for (int i = 0; i < shards.size(); i++) {
+      idle.add(new ConcurrentLinkedQueue<Connection>());
+    }
+  }
+
+  /** Returns the index of the shard that owns {@code attendee}. */
+  public int shardOf(String attendee) {
+    return Math.floorMod(attendee.hashCode(), shards.size());
+  }
+
+  /**
+   * Stores {@code events} on the shards. Each event goes to every shard that owns one of its
+   * attendees, so each shard sees the whole calendar of the people it owns.
+   */
+  public void addEvents(Collection<Event> events) {
+    List<List<Event>> eventsByShard = new ArrayList<>(shards.size());
+    for (int i = 0; i < shards.size(); i++) {
+      eventsByShard.add(new ArrayList<Event>());
+    }
+    for (Event event : events) {
+      Set<Integer> owners = new LinkedHashSet<>();
+      for (String attendee : event.getAttendees()) {
+        owners.add(shardOf(attendee));
+      }
+      for (int owner : owners) {
+        eventsByShard.get(owner).add(event);
+      }
+    }
+
+    List<Future<JsonObject>> replies = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      if (eventsByShard.get(i).isEmpty()) {
+        continue;
+      }
+      JsonObject request = new JsonObject();
+      request.addProperty("op", "add");
+      request.add("events", Json.GSON.toJsonTree(eventsByShard.get(i)));
+      replies.add(send(i, request));
+    }
+    for (Future<JsonObject> reply : replies) {
+      await(reply);
+    }
+  }
+
+  /**
+   * Returns the merged busy intervals of {@code attendees}, gathered from the shards that own them.
+   */
+  @Override
+  public Iterator<TimeRange> getBusyTimes(Collection<String> attendees) {
+    List<JsonArray> attendeesByShard = new ArrayList<>(shards.size());
+    for (int i = 0; i < shards.size(); i++) {
+      attendeesByShard.add(new JsonArray());
+    }
+    for (String attendee : attendees) {
+      attendeesByShard.get(shardOf(attendee)).add(attendee);
+    }
+
+    List<Future<JsonObject>> replies = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      if (attendeesByShard.get(i).size() == 0) {
+        continue;
+      }
+      JsonObject request = new JsonObject();
+      request.addProperty("op", "busy");
+      request.add("attendees", attendeesByShard.get(i));
+      replies.add(send(i, request));
+    }
+
+    List<TimeRange> busyTimes = new ArrayList<>();
+    for (Future<JsonObject> reply : replies) {
+      Iterator<JsonElement> bounds = await(reply).getAsJsonArray("busy").iterator();
+      while (bounds.hasNext()) {
+        int start = bounds.next().getAsInt();
+        int end = bounds.next().getAsInt();
+        busyTimes.add(TimeRange.fromStartEnd(start, end, false));
+      }
+    }
+    // Each shard's reply is already sorted, and the sort merges such runs in linear time.
+    Collections.sort(busyTimes, TimeRange.ORDER_BY_START);
+    return busyTimes.iterator();
+  }
+
+  @Override
+  public void close() {
+    scatter.shutdownNow();
+    for (Queue<Connection> connections : idle) {
+      for (Connection connection = connections.poll();
+          connection != null;
+          connection = connections.poll()) {
+        connection.close();
+      }
+    }
+  }
+
+  /** Sends {@code request} to shard {@code index} on a pool thread. */
+  private Future<JsonObject> send(int index, JsonObject request) {
+    InetSocketAddress address = shards.get(index);
+    Queue<Connection> connections = idle.get(index);
+    return scatter.submit(
+        () -> {
+          Connection connection = connections.poll();
+          if (connection == null) {
+            connection = new Connection(address);
+          }
+          JsonObject response;
+          try {
+            connection.writer.write(request.toString());
+            connection.writer.write('\n');
+            connection.writer.flush();
+            String line = connection.reader.readLine();
+            if (line == null) {
+              throw new IOException("shard " + address + " closed the connection");
+            }
+            response = Json.GSON.fromJson(line, JsonObject.class);
+          } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+          }
+          // The exchange finished, so the connection is ready for another request.
+          connections.add(connection);
+          if (response.has("error")) {
+            throw new IOException(
+                "shard " + address + " failed: " + response.get("error").getAsString());
+          }
+          return response;
+        });
+  }
+
+  /** Waits for {@code reply}, turning shard failures into unchecked exceptions. */
+  private static JsonObject await(Future<JsonObject> reply) {
+    try {
+      return reply.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for a shard", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw new UncheckedIOException((IOException) e.getCause());
+      }
+      throw new IllegalStateException("shard request failed", e.getCause());
+    }
+  }
+}
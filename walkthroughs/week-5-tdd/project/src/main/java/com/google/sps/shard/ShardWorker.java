@@ -0,0 +1,207 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.shard;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
+import com.google.sps.json.Json;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Owns the busy data for one shard of the attendees and answers a {@link ShardCoordinator} over a
+ * loopback socket. Each request and response is one line of JSON:
+ *
+ * <ul>
+ *   <li>{"op": "add", "events": [...]} stores the events and answers {"added": n}.
+ *   <li>{"op": "busy", "attendees": [...]} answers {"busy": [start, end, start, end, ...]}: the
+ *       merged, disjoint busy intervals of those attendees in time order.
+ * </ul>
+ *
+ * <p>Workers can run inside the coordinator's JVM or as their own process through {@link #main}.
+ */
+public final class ShardWorker implements Closeable {
+  private final EventStore store = new EventStore();
+  private final ServerSocket serverSocket;
+  private final ExecutorService connections = Executors.newCachedThreadPool();
+
+  /** Starts a worker listening on {@code port} of the loopback interface. Zero picks any port. */
+  public ShardWorker(int port) throws IOException {
+    serverSocket = new ServerSocket(port, /*backlog=*/ 50, InetAddress.getLoopbackAddress());
+    Thread acceptor = new Thread(this::acceptConnections, "shard-worker-" + getPort());
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /** Returns the port this worker listens on. */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    connections.shutdownNow();
+  }
+
+  private void acceptConnections() {
+    try {
+      while (true) {
+        Socket socket = serverSocket.accept();
+        connections.execute(() -> serve(socket));
+      }
+    } catch (SocketException e) {
+      // The server socket was closed; stop accepting.
+    } catch (IOException e) {
+      throw new IllegalStateException("shard worker stopped accepting connections", e);
+    }
+  }
+
+  /** Answers requests on {@code socket}, one per line, until the coordinator hangs up. */
+  private void serve(Socket socket) {
+    try (Socket connection = socket;
+        BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+        Writer writer =
+            new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        JsonObject response;
+        try {
+          response = handle(Json.GSON.fromJson(line, JsonObject.class));
+        } catch (IllegalArgumentException | JsonParseException e) {
+          response = new JsonObject();
+          response.addProperty("error", String.valueOf(e.getMessage()));
+        }
+        writer.write(response.toString());
+        writer.write('\n');
+        writer.flush();
+      }
+    } catch (IOException e) {
+      // The coordinator went away mid-request; nothing is left to answer.
+    }
+  }
+
+  /**
+   * Answers one request. Requests that are not what the protocol expects throw {@code
+   * IllegalArgumentException}, which is sent back as an error reply.
+   */
+  private JsonObject handle(JsonObject request) {
+    if (request == null) {
+      throw new IllegalArgumentException("empty request");
+    }
+    JsonObject response = new JsonObject();
+    String op = getString(request, "op");
+    switch (op) {
+      case "add":
+        List<Event> events = new ArrayList<>();
+        for (JsonElement event : getArray(request, "events")) {
+          if (!event.isJsonObject()) {
+            throw new IllegalArgumentException("events must be objects");
+          }
+          events.add(Json.GSON.fromJson(event, Event.class));
+        }
+        store.addAll(events);
+        response.addProperty("added", events.size());
+        return response;
+      case "busy":
+        List<String> attendees = new ArrayList<>();
+        for (JsonElement attendee : getArray(request, "attendees")) {
+          if (!attendee.isJsonPrimitive() || !attendee.getAsJsonPrimitive().isString()) {
+            throw new IllegalArgumentException("attendees must be strings");
+          }
+          attendees.add(attendee.getAsString());
+        }
+        response.add("busy", mergedBusyTimes(attendees));
+        return response;
+      default:
+        throw new IllegalArgumentException("unknown op: " + op);
+    }
+  }
+
+  private static String getString(JsonObject request, String name) {
+    JsonElement value = request.get(name);
+    if (value == null || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString()) {
+      throw new IllegalArgumentException(name + " must be a string");
+    }
+    return value.getAsString();
+  }
+
+  private static JsonArray getArray(JsonObject request, String name) {
+    JsonElement value = request.get(name);
+    if (value == null || !value.isJsonArray()) {
+      throw new IllegalArgumentException(name + " must be an array");
+    }
+    return value.getAsJsonArray();
+  }
+
+  /** Returns the busy times of {@code attendees}, merged into disjoint intervals. */
+  private JsonArray mergedBusyTimes(List<String> attendees) {
+    JsonArray busy = new JsonArray();
+    Iterator<TimeRange> busyTimes = store.snapshot().getBusyTimes(attendees);
+    if (!busyTimes.hasNext()) {
+      return busy;
+    }
+
+    TimeRange first = busyTimes.next();
+    int start = first.start();
+    int end = first.end();
+    while (busyTimes.hasNext()) {
+      TimeRange range = busyTimes.next();
+      if (range.start() > end) {
+        busy.add(start);
+        busy.add(end);
+        start = range.start();
+      }
+      end = Math.max(end, range.end());
+    }
+    busy.add(start);
+    busy.add(end);
+    return busy;
+  }
+
+  /**
+   * Runs a worker in its own process. Takes the port to listen on (default: any free port) and
+   * prints "READY <port>" once it accepts connections.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+    ShardWorker worker = new ShardWorker(port);
+    System.out.println("READY " + worker.getPort());
+    System.out.flush();
+    // The acceptor is a daemon thread, so keep the process alive until it is killed.
+    Thread.currentThread().join();
+  }
+}
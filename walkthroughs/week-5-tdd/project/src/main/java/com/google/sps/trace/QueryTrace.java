@@ -0,0 +1,83 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.trace;
+
+import java.util.logging.Logger;
+
+/**
+ * Times the phases of a query as Java Flight Recorder events, so that slow requests can be lined up
+ * with GC and allocation in a recording. The events are {@code com.google.sps.QueryParse}, {@code
+ * QueryIndexLookup}, {@code QuerySweep} and {@code QuerySerialize}.
+ *
+ * <p>The events are compiled from {@code src/main/jfr}, and only when building on a JDK that has
+ * {@code jdk.jfr}; see the {@code jfr} profile in {@code pom.xml}. This class finds them by name,
+ * so callers only ever see {@link Span}. Without them, and whenever a phase is not being recorded,
+ * {@link #begin} returns a span that does nothing.
+ */
+public final class QueryTrace {
+  private static final Logger logger = Logger.getLogger(QueryTrace.class.getName());
+
+  /** The phases of a query. */
+  public enum Phase {
+    PARSE,
+    INDEX_LOOKUP,
+    SWEEP,
+    SERIALIZE
+  }
+
+  /** One timed phase. Counts set on a span that is not recorded are dropped. */
+  public static class Span {
+    Span() {}
+
+    /** Records how many attendees the phase was for. */
+    public void setAttendees(int attendees) {}
+
+    /** Adds {@code count} to the busy times or events the phase read. */
+    public void addEventsScanned(long count) {}
+
+    /** Records how many results the phase produced. */
+    public void setResults(int results) {}
+
+    /** Ends the phase and records it. */
+    public void end() {}
+  }
+
+  /** Starts spans for phases. Implemented by {@code JfrTracer}, where it is compiled. */
+  interface Tracer {
+    Span begin(Phase phase);
+  }
+
+  static final Span NOT_RECORDED = new Span();
+  private static final Tracer TRACER = loadTracer();
+
+  private QueryTrace() {
+    // Disallow instances.
+  }
+
+  /** Starts timing {@code phase}. */
+  public static Span begin(Phase phase) {
+    return TRACER == null ? NOT_RECORDED : TRACER.begin(phase);
+  }
+
+  private static Tracer loadTracer() {
+    try {
+      return (Tracer)
+          Class.forName("com.google.sps.trace.JfrTracer").getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      logger.info("jdk.jfr is not available, so query phases will not be recorded");
+      return null;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.trace;
+
+import jdk.jfr.EventType;
+
+/**
+ * Backs {@link QueryTrace} with JFR events. It is compiled on its own, for runtimes with {@code
+ * jdk.jfr}, and loaded by name, so nothing else refers to a JFR type.
+ */
+final class JfrTracer implements QueryTrace.Tracer {
+  // Indexed by phase. Asking a type whether it is recorded is a field read, so no event is
+  // allocated for a phase nobody records.
+  private final EventType[] types = new EventType[QueryTrace.Phase.values().length];
+
+  JfrTracer() {
+    for (QueryTrace.Phase phase : QueryTrace.Phase.values()) {
+      types[phase.ordinal()] = EventType.getEventType(create(phase).getClass());
+    }
+  }
+
+  @Override
+  public QueryTrace.Span begin(QueryTrace.Phase phase) {
+    if (!types[phase.ordinal()].isEnabled()) {
+      return QueryTrace.NOT_RECORDED;
+    }
+    QueryPhaseEvent event = create(phase);
+    event.begin();
+    return new JfrSpan(event);
+  }
+
+  private static QueryPhaseEvent create(QueryTrace.Phase phase) {
+    switch (phase) {
+      case PARSE:
+        return new ParseEvent();
+      case INDEX_LOOKUP:
+        return new IndexLookupEvent();
+      case SWEEP:
+        return new SweepEvent();
+      default:
+        return new SerializeEvent();
+    }
+  }
+
+  /** A span backed by a JFR event. */
+  private static final class JfrSpan extends QueryTrace.Span {
+    private final QueryPhaseEvent event;
+
+    JfrSpan(QueryPhaseEvent event) {
+      this.event = event;
+    }
+
+    @Override
+    public void setAttendees(int attendees) {
+      event.attendees = attendees;
+    }
+
+    @Override
+    public void addEventsScanned(long count) {
+      event.eventsScanned += count;
+    }
+
+    @Override
+    public void setResults(int results) {
+      event.results = results;
+    }
+
+    @Override
+    public void end() {
+      event.end();
+      if (event.shouldCommit()) {
+        event.commit();
+      }
+    }
+  }
+}
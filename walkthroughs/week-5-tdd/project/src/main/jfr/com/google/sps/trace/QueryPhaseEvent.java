@@ -0,0 +1,34 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/** What every phase of a query records. Stack traces are left out to keep commits cheap. */
+@Category({"Calendar", "Query"})
+@StackTrace(false)
+abstract class QueryPhaseEvent extends Event {
+  @Label("Attendees")
+  int attendees;
+
+  @Label("Events Scanned")
+  long eventsScanned;
+
+  @Label("Results")
+  int results;
+}
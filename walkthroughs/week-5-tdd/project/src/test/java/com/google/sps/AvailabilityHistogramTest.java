@@ -0,0 +1,80 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AvailabilityHistogramTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  @Test
+  public void countsFreeMembersPerMinute() {
+    // Events  :   |--A--|
+    //                |---B---|
+    //                |--A--|     (duplicate of A's time must not count twice)
+    // Horizon : |--------------|
+    EventStore store =
+        new EventStore(
+            Arrays.asList(
+                new Event(
+                    "Event 1", TimeRange.fromStartEnd(10, 30, false), Arrays.asList(PERSON_A)),
+                new Event(
+                    "Event 2", TimeRange.fromStartEnd(20, 40, false), Arrays.asList(PERSON_B)),
+                new Event(
+                    "Event 3", TimeRange.fromStartEnd(20, 30, false), Arrays.asList(PERSON_A))));
+
+    AvailabilityHistogram histogram =
+        AvailabilityHistogram.of(
+            store,
+            Arrays.asList(PERSON_A, PERSON_B, PERSON_C),
+            TimeRange.fromStartEnd(0, 50, false));
+
+    Assert.assertEquals(3, histogram.getMembers());
+    Assert.assertEquals(
+        Arrays.asList(
+            new AvailabilityHistogram.Run(0, 10, 3),
+            new AvailabilityHistogram.Run(10, 10, 2),
+            new AvailabilityHistogram.Run(20, 10, 1),
+            new AvailabilityHistogram.Run(30, 10, 2),
+            new AvailabilityHistogram.Run(40, 10, 3)),
+        histogram.getRuns());
+  }
+
+  @Test
+  public void blocksAreClippedToTheHorizon() {
+    EventStore store =
+        new EventStore(
+            Arrays.asList(
+                new Event(
+                    "Event 1", TimeRange.fromStartEnd(0, 100, false), Arrays.asList(PERSON_A))));
+
+    AvailabilityHistogram histogram =
+        AvailabilityHistogram.of(
+            store, Arrays.asList(PERSON_A), TimeRange.fromStartEnd(90, 120, false));
+
+    Assert.assertEquals(
+        Arrays.asList(
+            new AvailabilityHistogram.Run(90, 10, 0), new AvailabilityHistogram.Run(100, 20, 1)),
+        histogram.getRuns());
+  }
+}
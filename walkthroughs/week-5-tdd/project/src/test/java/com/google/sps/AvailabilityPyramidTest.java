@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class AvailabilityPyramidTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  private static final int DAY = TimeRange.WHOLE_DAY.duration();
+
+  @Test
+  public void matchesMinuteByMinuteScan() {
+    Random random = new Random(7);
+    AvailabilityPyramid pyramid = new AvailabilityPyramid(3);
+    List<Event> events = new ArrayList<>();
+    List<String> people = Arrays.asList(PERSON_A, PERSON_B, PERSON_C);
+    for (int i = 0; i < 120; i++) {
+      int start = random.nextInt(3 * DAY);
+      events.add(
+          new Event(
+              "Event " + i,
+              TimeRange.fromStartDuration(start, 1 + random.nextInt(180)),
+              Arrays.asList(people.get(random.nextInt(3)))));
+    }
+    pyramid.added(events);
+    // Removing must undo adding exactly.
+    List<Event> removed = events.subList(0, 40);
+    pyramid.removed(removed);
+    List<Event> remaining = events.subList(40, events.size());
+
+    for (int duration : new int[] {1, 15, 37, 60, 200, DAY}) {
+      Assert.assertEquals(
+          "duration " + duration,
+          scan(remaining, people, 3, duration),
+          pyramid.find(people, duration));
+      Assert.assertEquals(
+          "duration " + duration,
+          scan(remaining, Arrays.asList(PERSON_B), 3, duration),
+          pyramid.find(Arrays.asList(PERSON_B), duration));
+    }
+  }
+
+  @Test
+  public void bookedDaysAreSkippedWhole() {
+    // A is busy for the first two days, so only the third day is looked at, and it is free.
+    AvailabilityPyramid pyramid = new AvailabilityPyramid(3);
+    pyramid.added(
+        Arrays.asList(
+            new Event(
+                "Offsite", TimeRange.fromStartDuration(0, 2 * DAY), Arrays.asList(PERSON_A))));
+
+    List<TimeRange> free = pyramid.find(Arrays.asList(PERSON_A, PERSON_B), 30);
+
+    Assert.assertEquals(Arrays.asList(TimeRange.fromStartDuration(2 * DAY, DAY)), free);
+    Assert.assertEquals(3, pyramid.visitedBlocks());
+  }
+
+  @Test
+  public void followsTheStore() {
+    EventStore store = new EventStore();
+    Event meeting =
+        new Event("Meeting", TimeRange.fromStartDuration(60, DAY - 60), Arrays.asList(PERSON_A));
+    store.add(meeting);
+    AvailabilityPyramid pyramid = new AvailabilityPyramid(1);
+    store.addListener(pyramid);
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartDuration(0, 60)),
+        pyramid.find(Arrays.asList(PERSON_A), 30));
+
+    store.removeAll(Arrays.asList(meeting));
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.WHOLE_DAY), pyramid.find(Arrays.asList(PERSON_A), 30));
+  }
+
+  /** Returns the free runs of at least {@code duration} minutes, found one minute at a time. */
+  private static List<TimeRange> scan(
+      Collection<Event> events, Collection<String> attendees, int days, int duration) {
+    boolean[] busy = new boolean[days * DAY];
+    for (Event event : events) {
+      if (attendees.containsAll(event.getAttendees())) {
+        for (int minute = event.getWhen().start();
+            minute < Math.min(event.getWhen().end(), busy.length);
+            minute++) {
+          busy[minute] = true;
+        }
+      }
+    }
+    List<TimeRange> free = new ArrayList<>();
+    int start = -1;
+    for (int minute = 0; minute <= busy.length; minute++) {
+      boolean isFree = minute < busy.length && !busy[minute];
+      if (isFree && start < 0) {
+        start = minute;
+      } else if (!isFree && start >= 0) {
+        if (minute - start >= duration) {
+          free.add(TimeRange.fromStartEnd(start, minute, false));
+        }
+        start = -1;
+      }
+    }
+    return free;
+  }
+}
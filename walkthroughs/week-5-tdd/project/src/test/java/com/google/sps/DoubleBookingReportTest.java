@@ -0,0 +1,99 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class DoubleBookingReportTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  @Test
+  public void reportsOverlapsPerAttendee() {
+    // Events  : |--1 (A, B)--|
+    //                 |--2 (A)--|
+    //                           |--3 (B)--|   (back-to-back is not a conflict)
+    Event first =
+        new Event("1", TimeRange.fromStartEnd(0, 60, false), Arrays.asList(PERSON_A, PERSON_B));
+    Event second = new Event("2", TimeRange.fromStartEnd(30, 90, false), Arrays.asList(PERSON_A));
+    Event third = new Event("3", TimeRange.fromStartEnd(60, 120, false), Arrays.asList(PERSON_B));
+    EventStore store = new EventStore(Arrays.asList(third, second, first));
+
+    List<DoubleBookingReport.Conflict> conflicts = collect(store);
+
+    Assert.assertEquals(1, conflicts.size());
+    Assert.assertEquals(PERSON_A, conflicts.get(0).getAttendee());
+    Assert.assertEquals(first, conflicts.get(0).getFirst());
+    Assert.assertEquals(second, conflicts.get(0).getSecond());
+  }
+
+  @Test
+  public void findsTheSamePairsAsComparingEveryPair() {
+    Random random = new Random(7);
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      int start = random.nextInt(TimeRange.WHOLE_DAY.duration());
+      int duration = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(90);
+      events.add(
+          new Event(
+              "Event " + i,
+              TimeRange.fromStartDuration(start, duration),
+              Arrays.asList("Person " + random.nextInt(1000))));
+    }
+
+    Set<String> expected = new HashSet<>();
+    for (int i = 0; i < events.size(); i++) {
+      for (int j = i + 1; j < events.size(); j++) {
+        Event a = events.get(i);
+        Event b = events.get(j);
+        if (a.getAttendees().equals(b.getAttendees()) && a.getWhen().overlaps(b.getWhen())) {
+          expected.add(pair(a, b));
+        }
+      }
+    }
+    Set<String> actual = new HashSet<>();
+    for (DoubleBookingReport.Conflict conflict : collect(new EventStore(events))) {
+      actual.add(pair(conflict.getFirst(), conflict.getSecond()));
+    }
+
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals(expected, actual);
+  }
+
+  private static List<DoubleBookingReport.Conflict> collect(EventStore store) {
+    ConcurrentLinkedQueue<DoubleBookingReport.Conflict> conflicts = new ConcurrentLinkedQueue<>();
+    DoubleBookingReport.run(store.snapshot(), conflicts::add);
+    return new ArrayList<>(conflicts);
+  }
+
+  /** Returns a name for the pair that does not depend on which event comes first. */
+  private static String pair(Event a, Event b) {
+    return a.getTitle().compareTo(b.getTitle()) < 0
+        ? a.getTitle() + "/" + b.getTitle()
+        : b.getTitle() + "/" + a.getTitle();
+  }
+}
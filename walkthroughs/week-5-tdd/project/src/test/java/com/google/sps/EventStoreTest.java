@@ -0,0 +1,265 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventStoreTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final Event EVENT_0800 = event("Event 1", 480, PERSON_A);
+  private static final Event EVENT_0900 = event("Event 2", 540, PERSON_A);
+  private static final Event EVENT_0900_LATER = event("Event 3", 540, PERSON_B);
+  private static final Event EVENT_1000 = event("Event 4", 600, PERSON_B);
+
+  private EventStore store;
+
+  @Before
+  public void setUp() {
+    store = new EventStore();
+  }
+
+  @Test
+  public void addKeepsEventsSortedAndStable() {
+    store.add(EVENT_1000);
+    store.add(EVENT_0900);
+    store.add(EVENT_0800);
+    store.add(EVENT_0900_LATER);
+
+    Assert.assertEquals(
+        Arrays.asList(EVENT_0800, EVENT_0900, EVENT_0900_LATER, EVENT_1000), store.getEvents());
+  }
+
+  @Test
+  public void addAllMergesWithStoredEvents() {
+    store.add(EVENT_0900);
+    store.addAll(Arrays.asList(EVENT_1000, EVENT_0900_LATER, EVENT_0800));
+
+    Assert.assertEquals(
+        Arrays.asList(EVENT_0800, EVENT_0900, EVENT_0900_LATER, EVENT_1000), store.getEvents());
+    Assert.assertEquals(4, store.size());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void eventsAreReadOnly() {
+    store.add(EVENT_0800);
+    store.getEvents().clear();
+  }
+
+  @Test
+  public void overlappingEventsAreCompactedPerAttendee() {
+    // A's events overlap and touch, so they become one block. B's two events stay apart.
+    Event hold = event("Hold", 510, PERSON_A);
+    store.add(EVENT_0800);
+    store.add(EVENT_0900);
+    store.add(EVENT_1000);
+    store.add(hold);
+
+    List<BusyBlock> blocks = store.getBusyBlocks(PERSON_A);
+    Assert.assertEquals(1, blocks.size());
+    Assert.assertEquals(TimeRange.fromStartEnd(480, 570, false), blocks.get(0).getWhen());
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(EVENT_0800, EVENT_0900, hold)),
+        new HashSet<>(blocks.get(0).getSources()));
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartDuration(600, 30)), whens(store.getBusyBlocks(PERSON_B)));
+    Assert.assertEquals(Arrays.asList(), store.getBusyBlocks("Nobody"));
+  }
+
+  @Test
+  public void addAllCompactsLikeAdd() {
+    // Loading in one batch must give the same blocks as adding one at a time.
+    List<Event> events =
+        Arrays.asList(
+            EVENT_1000,
+            event("Duplicate", 600, PERSON_B),
+            EVENT_0900_LATER,
+            event("Long", 550, PERSON_B),
+            EVENT_0800);
+    EventStore oneByOne = new EventStore();
+    for (Event event : events) {
+      oneByOne.add(event);
+    }
+    store.add(EVENT_0900);
+    store.addAll(events);
+    oneByOne.add(EVENT_0900);
+
+    for (String person : Arrays.asList(PERSON_A, PERSON_B)) {
+      Assert.assertEquals(
+          whens(oneByOne.getBusyBlocks(person)), whens(store.getBusyBlocks(person)));
+    }
+    Assert.assertEquals(
+        Arrays.asList(
+            TimeRange.fromStartEnd(540, 580, false), TimeRange.fromStartEnd(600, 630, false)),
+        whens(store.getBusyBlocks(PERSON_B)));
+  }
+
+  @Test
+  public void snapshotsDoNotSeeLaterWrites() {
+    store.add(EVENT_0800);
+    EventStore.Snapshot before = store.snapshot();
+    store.addAll(Arrays.asList(EVENT_0900, EVENT_1000));
+
+    Assert.assertEquals(Arrays.asList(EVENT_0800), before.getEvents());
+    Assert.assertEquals(1, before.getBusyBlocks(PERSON_A).size());
+    Assert.assertEquals(Arrays.asList(), before.getBusyBlocks(PERSON_B));
+    Assert.assertEquals(3, store.snapshot().size());
+    Assert.assertTrue(store.snapshot().getVersion() > before.getVersion());
+  }
+
+  @Test
+  public void concurrentWritersAreAllPublished() throws InterruptedException {
+    // Writers race each other; each must find its events in the store once add returns.
+    int writerCount = 8;
+    int eventsPerWriter = 200;
+    AtomicInteger missing = new AtomicInteger();
+    Thread[] writers = new Thread[writerCount];
+    for (int w = 0; w < writerCount; w++) {
+      String person = "Person " + w;
+      writers[w] =
+          new Thread(
+              () -> {
+                for (int i = 0; i < eventsPerWriter; i++) {
+                  Event event = event("Event " + i, i * 2, person);
+                  store.add(event);
+                  if (!store.snapshot().getEvents().contains(event)) {
+                    missing.incrementAndGet();
+                  }
+                }
+              });
+      writers[w].start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+
+    Assert.assertEquals(0, missing.get());
+    Assert.assertEquals(writerCount * eventsPerWriter, store.size());
+    Assert.assertEquals(1, store.getBusyBlocks("Person 3").size());
+    Assert.assertTrue(store.snapshot().getVersion() <= writerCount * eventsPerWriter);
+  }
+
+  @Test
+  public void removeAllRebuildsBusyBlocks() {
+    // Removing the event that joins A's other two splits their block again.
+    Event bridge = event("Bridge", 500, PERSON_A);
+    store.addAll(Arrays.asList(EVENT_0800, bridge, EVENT_0900, EVENT_1000));
+    EventStore.Snapshot before = store.snapshot();
+
+    store.removeAll(Arrays.asList(bridge, EVENT_1000, event("Never added", 700, PERSON_B)));
+
+    Assert.assertEquals(Arrays.asList(EVENT_0800, EVENT_0900), store.getEvents());
+    Assert.assertEquals(
+        Arrays.asList(
+            TimeRange.fromStartEnd(480, 510, false), TimeRange.fromStartEnd(540, 570, false)),
+        whens(store.getBusyBlocks(PERSON_A)));
+    Assert.assertEquals(Arrays.asList(), store.getBusyBlocks(PERSON_B));
+    Assert.assertEquals(4, before.size());
+  }
+
+  @Test
+  public void busyBlocksSurviveCompression() {
+    // Gaps and lengths of every size must decode to the same blocks, and every event must go back
+    // to the block it started in, including the zero-length one that touches the first block.
+    Event first = event("First", 0, PERSON_A);
+    Event touching =
+        new Event("Touching", TimeRange.fromStartDuration(30, 0), Arrays.asList(PERSON_A));
+    Event far = event("Far", 200, PERSON_A);
+    Event farther =
+        new Event("Farther", TimeRange.fromStartDuration(100000, 5000000), Arrays.asList(PERSON_A));
+    store.addAll(Arrays.asList(farther, far, touching, first));
+
+    List<BusyBlock> blocks = store.getBusyBlocks(PERSON_A);
+    Assert.assertEquals(
+        Arrays.asList(
+            TimeRange.fromStartDuration(0, 30),
+            TimeRange.fromStartDuration(200, 30),
+            TimeRange.fromStartDuration(100000, 5000000)),
+        whens(blocks));
+    Assert.assertEquals(Arrays.asList(first, touching), blocks.get(0).getSources());
+    Assert.assertEquals(Arrays.asList(far), blocks.get(1).getSources());
+    Assert.assertEquals(Arrays.asList(farther), blocks.get(2).getSources());
+  }
+
+  @Test
+  public void busyTimesJoinOverlapsAcrossAttendees() {
+    store.addAll(
+        Arrays.asList(
+            EVENT_0800, EVENT_0900, EVENT_0900_LATER, EVENT_1000, event("Later", 700, PERSON_A)));
+
+    List<TimeRange> busyTimes = new ArrayList<>();
+    Iterator<TimeRange> iterator = store.getBusyTimes(Arrays.asList(PERSON_A, PERSON_B));
+    while (iterator.hasNext()) {
+      busyTimes.add(iterator.next());
+    }
+
+    Assert.assertEquals(
+        Arrays.asList(
+            TimeRange.fromStartEnd(480, 510, false),
+            TimeRange.fromStartEnd(540, 570, false),
+            TimeRange.fromStartEnd(600, 630, false),
+            TimeRange.fromStartEnd(700, 730, false)),
+        busyTimes);
+  }
+
+  @Test
+  public void writesOnlyCopyTheHoursTheyTouch() {
+    store.addAll(Arrays.asList(EVENT_0800, EVENT_0900, EVENT_1000));
+    List<Event> before = store.getEvents();
+
+    // Emptying an hour drops it, and the other hours keep their order around it.
+    store.removeAll(Arrays.asList(EVENT_0900, EVENT_0900));
+    store.add(EVENT_0900_LATER);
+    store.add(event("Event 5", 545, PERSON_A));
+    store.add(event("Event 6", -30, PERSON_B));
+
+    Assert.assertEquals(Arrays.asList(EVENT_0800, EVENT_0900, EVENT_1000), before);
+    Assert.assertEquals(
+        Arrays.asList(
+            event("Event 6", -30, PERSON_B),
+            EVENT_0800,
+            EVENT_0900_LATER,
+            event("Event 5", 545, PERSON_A),
+            EVENT_1000),
+        store.getEvents());
+    Assert.assertEquals(5, store.size());
+  }
+
+  private static List<TimeRange> whens(List<BusyBlock> blocks) {
+    List<TimeRange> whens = new ArrayList<>();
+    for (BusyBlock block : blocks) {
+      whens.add(block.getWhen());
+    }
+    return whens;
+  }
+
+  private static Event event(String title, int start, String attendee) {
+    return new Event(title, TimeRange.fromStartDuration(start, 30), Arrays.asList(attendee));
+  }
+}
@@ -0,0 +1,84 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class ExplanationTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+
+  @Test
+  public void segmentsListWhoIsBusy() {
+    // Events  :   |--A--|
+    //                |---B---|
+    //                      |-A-|   (touches A's first event, so A stays busy)
+    // Day     : |------------------|
+    EventStore store =
+        new EventStore(
+            Arrays.asList(
+                new Event(
+                    "Event 1", TimeRange.fromStartEnd(10, 30, false), Arrays.asList(PERSON_A)),
+                new Event(
+                    "Event 2", TimeRange.fromStartEnd(20, 40, false), Arrays.asList(PERSON_B)),
+                new Event(
+                    "Event 3", TimeRange.fromStartEnd(30, 50, false), Arrays.asList(PERSON_A))));
+
+    Explanation explanation =
+        Explanation.of(store, Arrays.asList(PERSON_A, PERSON_B, PERSON_C, PERSON_A));
+
+    Assert.assertEquals(Arrays.asList(PERSON_A, PERSON_B, PERSON_C), explanation.getAttendees());
+    Assert.assertEquals(
+        Arrays.asList(
+            new Explanation.Segment(TimeRange.fromStartEnd(10, 20, false), new int[] {0}),
+            new Explanation.Segment(TimeRange.fromStartEnd(20, 40, false), new int[] {0, 1}),
+            new Explanation.Segment(TimeRange.fromStartEnd(40, 50, false), new int[] {0})),
+        explanation.getSegments());
+  }
+
+  @Test
+  public void rankingCountsTimeWhereAttendeeIsTheOnlyBlocker() {
+    // B is busy longer, but A is the only one busy for longer.
+    //
+    // Events  : |----A----|
+    //                |---------B---------|
+    //                                |-C-|
+    EventStore store =
+        new EventStore(
+            Arrays.asList(
+                new Event("Event 1", TimeRange.fromStartEnd(0, 60, false), Arrays.asList(PERSON_A)),
+                new Event(
+                    "Event 2", TimeRange.fromStartEnd(30, 100, false), Arrays.asList(PERSON_B)),
+                new Event(
+                    "Event 3", TimeRange.fromStartEnd(80, 100, false), Arrays.asList(PERSON_C))));
+
+    List<Explanation.Blocker> ranking =
+        Explanation.of(store, Arrays.asList(PERSON_A, PERSON_B, PERSON_C)).getRanking();
+
+    Assert.assertEquals(2, ranking.size());
+    Assert.assertEquals(PERSON_A, ranking.get(0).getAttendee());
+    Assert.assertEquals(30, ranking.get(0).getMinutesFreed());
+    Assert.assertEquals(PERSON_B, ranking.get(1).getAttendee());
+    Assert.assertEquals(20, ranking.get(1).getMinutesFreed());
+  }
+}
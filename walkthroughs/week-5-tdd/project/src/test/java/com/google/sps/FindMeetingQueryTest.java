@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import org.junit.Assert;
 import org.junit.Before;
@@ -492,4 +493,401 @@ public final class FindMeetingQueryTest {
     Collection<TimeRange> expected = Arrays.asList();
     Assert.assertEquals(expected, actual);
   }
+
+  @Test
+  public void roomsAreBookedLikeAttendees() {
+    // The room is booked by someone else's event, so it is only free around that event.
+    //
+    // Events  :       |--A--|
+    //                          |-Room-|
+    // Day     : |---------------------------|
+    // Options : |--1--|     |--2--|      |--3--|
+
+    Resource room = new Resource("Room", 4, Arrays.asList("projector"));
+    ResourceCatalog catalog = new ResourceCatalog(Arrays.asList(room));
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+                Arrays.asList(PERSON_A)),
+            new Event(
+                "Event 2",
+                TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES),
+                Arrays.asList(PERSON_B, "Room")));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.requireRoom(2, Arrays.asList("projector"));
+
+    Collection<RoomSlot> actual = query.queryWithRooms(events, request, catalog);
+    Collection<RoomSlot> expected =
+        Arrays.asList(
+            new RoomSlot(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false), room),
+            new RoomSlot(TimeRange.fromStartEnd(TIME_0830AM, TIME_0900AM, false), room),
+            new RoomSlot(TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true), room));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void onlySuitableRoomsAreOffered() {
+    // The small room cannot seat the meeting and the other room lacks the projector, so only the
+    // large room is offered.
+    Resource small = new Resource("Small", 2, Arrays.asList("projector"));
+    Resource plain = new Resource("Plain", 10, Arrays.asList());
+    Resource large = new Resource("Large", 10, Arrays.asList("projector"));
+    ResourceCatalog catalog = new ResourceCatalog(Arrays.asList(small, plain, large));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.requireRoom(5, Arrays.asList("projector"));
+
+    Collection<RoomSlot> actual = query.queryWithRooms(NO_EVENTS, request, catalog);
+    Collection<RoomSlot> expected = Arrays.asList(new RoomSlot(TimeRange.WHOLE_DAY, large));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void alignedStartTimesWithinGaps() {
+    // Only starts on the quarter hour are offered, half an hour apart, and each must fit in a gap.
+    //
+    // Events  : |---A---|          |----A----|
+    // Day     : |----------------------------|
+    // Options :          8:15 8:45
+
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM + 5, false),
+                Arrays.asList(PERSON_A)),
+            new Event(
+                "Event 2",
+                TimeRange.fromStartEnd(TIME_0930AM, TimeRange.END_OF_DAY, true),
+                Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.setAlignment(15, 30);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(
+            TimeRange.fromStartDuration(TIME_0800AM + 15, DURATION_30_MINUTES),
+            TimeRange.fromStartDuration(TIME_0830AM + 15, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void alignmentDecidesWhetherOptionalAttendeesFit() {
+    // B leaves a 75 minute gap from 8:30 to 9:45. An hour fits in it, but not one starting on the
+    // hour, so B is only ignored when the meeting is aligned.
+    //
+    // Events  : |------B------|     |---B---|
+    // Day     : |----------------------------|
+
+    int time0945am = TIME_0930AM + DURATION_15_MINUTES;
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0830AM, false),
+                Arrays.asList(PERSON_B)),
+            new Event(
+                "Event 2",
+                TimeRange.fromStartEnd(time0945am, TimeRange.END_OF_DAY, true),
+                Arrays.asList(PERSON_B)));
+
+    MeetingRequest unaligned = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+    unaligned.addOptionalAttendee(PERSON_B);
+    MeetingRequest aligned = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_1_HOUR);
+    aligned.addOptionalAttendee(PERSON_B);
+    aligned.setAlignment(DURATION_1_HOUR, DURATION_1_HOUR);
+
+    Assert.assertEquals(
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0830AM, time0945am, false)),
+        query.query(events, unaligned));
+    // Every hour of the day, as for A alone.
+    Collection<TimeRange> actual = query.query(events, aligned);
+    Assert.assertEquals(24, actual.size());
+    Assert.assertTrue(actual.contains(TimeRange.fromStartDuration(TIME_0900AM, DURATION_1_HOUR)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stepMustBeAMultipleOfAlignment() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.setAlignment(15, 20);
+  }
+
+  @Test
+  public void storeGivesSameAnswerAsCollection() {
+    // The store hands its events over already sorted, so it must agree with an unsorted list.
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartDuration(TIME_1000AM, DURATION_60_MINUTES),
+                Arrays.asList(PERSON_A)),
+            new Event(
+                "Event 2",
+                TimeRange.fromStartDuration(TIME_0800AM, DURATION_30_MINUTES),
+                Arrays.asList(PERSON_B)),
+            new Event(
+                "Event 3",
+                TimeRange.fromStartDuration(TIME_0830AM, DURATION_90_MINUTES),
+                Arrays.asList(PERSON_A)));
+
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.query(new EventStore(events), request);
+    Collection<TimeRange> expected =
+        Arrays.asList(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false),
+            TimeRange.fromStartEnd(TIME_1100AM, TimeRange.END_OF_DAY, true));
+
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(query.query(events, request), actual);
+  }
+
+  @Test
+  public void firstAvailableReturnsOnlyTheEarliestSlot() {
+    // The gap before 8:00 is too short, so the earliest time is after the first event.
+    //
+    // Events  :   |--A--|     |--A--|
+    // Day     : |-----------------------|
+    // Options :         |-1-|
+
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartEnd(TimeRange.START_OF_DAY + 15, TIME_0800AM, false),
+                Arrays.asList(PERSON_A)),
+            new Event(
+                "Event 2",
+                TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES),
+                Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.setFirstAvailable(true);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TIME_0800AM, TIME_0900AM, false));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void firstAvailableSkipsGapsWithNoAlignedStart() {
+    // The first gap is long enough but holds no start on the hour.
+    //
+    // Events  : |-A-|    |---A---|
+    // Day     : |------------------------|
+    // Options :      8:05-8:55   10:00
+
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM + 5, false),
+                Arrays.asList(PERSON_A)),
+            new Event(
+                "Event 2",
+                TimeRange.fromStartEnd(TIME_0900AM - 5, TIME_0930AM, false),
+                Arrays.asList(PERSON_A)));
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.setAlignment(DURATION_60_MINUTES, DURATION_60_MINUTES);
+    request.setFirstAvailable(true);
+
+    Collection<TimeRange> actual = query.query(events, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(TIME_1000AM, DURATION_30_MINUTES));
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void firstAvailableStopsReadingBusyTimes() {
+    // A source that is busy in short bursts all day. Only the bursts up to the first gap that fits
+    // should be read.
+    final List<TimeRange> busyTimes = new ArrayList<>();
+    for (int start = TIME_0800AM; start < TimeRange.END_OF_DAY - 20; start += 20) {
+      busyTimes.add(TimeRange.fromStartDuration(start, 10));
+    }
+    final int[] reads = new int[1];
+    BusyTimeSource source =
+        new BusyTimeSource() {
+          @Override
+          public Iterator<TimeRange> getBusyTimes(Collection<String> attendees) {
+            final Iterator<TimeRange> iterator = busyTimes.iterator();
+            return new Iterator<TimeRange>() {
+              @Override
+              public boolean hasNext() {
+                return iterator.hasNext();
+              }
+
+              @Override
+              public TimeRange next() {
+                reads[0]++;
+                return iterator.next();
+              }
+            };
+          }
+        };
+
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_15_MINUTES);
+    request.setFirstAvailable(true);
+
+    Collection<TimeRange> actual = query.query(source, request);
+    Collection<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0800AM, false));
+
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(1, reads[0]);
+  }
+
+  @Test
+  public void seriesFoldsEveryOccurrence() {
+    // A daily meeting over three days. A is busy at 9:00 on the first day and at 9:30 on the
+    // second, so 9:00-10:30 fails on some day and only 9:30-10:00 fails on two.
+    //
+    // Day 1   :          |--A--|
+    // Day 2   :             |--A--|
+    // Day 3   :
+    int day = TimeRange.WHOLE_DAY.duration();
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES),
+                Arrays.asList(PERSON_A)),
+            new Event(
+                "Event 2",
+                TimeRange.fromStartDuration(day + TIME_0930AM, DURATION_60_MINUTES),
+                Arrays.asList(PERSON_A)),
+            new Event(
+                "Event 3",
+                TimeRange.fromStartDuration(3 * day + TIME_0800AM, DURATION_60_MINUTES),
+                Arrays.asList(PERSON_A)));
+    BusyTimeSource store = new EventStore(events);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> everyDay = query.querySeries(store, request, new Recurrence(day, 3));
+    Collection<TimeRange> twoDays = query.querySeries(store, request, new Recurrence(day, 3, 2));
+
+    Assert.assertEquals(
+        Arrays.asList(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_1000AM + 30, TimeRange.END_OF_DAY, true)),
+        everyDay);
+    Assert.assertEquals(
+        Arrays.asList(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0930AM, false),
+            TimeRange.fromStartEnd(TIME_1000AM, TimeRange.END_OF_DAY, true)),
+        twoDays);
+  }
+
+  @Test
+  public void seriesNeedsTheSameOccurrencesFreeForTheWholeMeeting() {
+    // Two of three days must work. A is busy for a different quarter of 9:00-9:30 on each of the
+    // first two days, so no minute is busy twice, but a meeting at 9:00 only works on day 3.
+    //
+    // Day 1   :          |A|
+    // Day 2   :            |A|
+    // Day 3   :
+    int day = TimeRange.WHOLE_DAY.duration();
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartDuration(TIME_0900AM, DURATION_15_MINUTES),
+                Arrays.asList(PERSON_A)),
+            new Event(
+                "Event 2",
+                TimeRange.fromStartDuration(
+                    day + TIME_0900AM + DURATION_15_MINUTES, DURATION_15_MINUTES),
+                Arrays.asList(PERSON_A)));
+    BusyTimeSource store = new EventStore(events);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+
+    Collection<TimeRange> actual = query.querySeries(store, request, new Recurrence(day, 3, 2));
+
+    // Meetings starting from 8:46 to 9:14 run into A on both days, so none fits across 9:15.
+    int quarterPastNine = TIME_0900AM + DURATION_15_MINUTES;
+    Assert.assertEquals(
+        Arrays.asList(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, quarterPastNine, false),
+            TimeRange.fromStartEnd(quarterPastNine, TimeRange.END_OF_DAY, true)),
+        actual);
+  }
+
+  @Test
+  public void paddingWidensBusyTimes() {
+    // Everyone wants 15 minutes before the meeting, and B also wants 30 minutes after it, so each
+    // busy time grows before it is swept. The 15 minutes left between them are too short.
+    //
+    // Events  :       |--A--|   |--B--|
+    // Padded  :       |--A---| |---B---|
+    // Day     : |-----|                |-----|
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartEnd(TIME_0900AM, TIME_1000AM, false),
+                Arrays.asList(PERSON_A)),
+            new Event(
+                "Event 2",
+                TimeRange.fromStartEnd(TIME_1100AM, TIME_1230PM, false),
+                Arrays.asList(PERSON_B)));
+    MeetingRequest request =
+        new MeetingRequest(Arrays.asList(PERSON_A, PERSON_B), DURATION_30_MINUTES);
+    request.setPadding(new Padding(/*before=*/ 15, /*after=*/ 0));
+    request.setAttendeePadding(PERSON_B, new Padding(/*before=*/ 0, /*after=*/ 30));
+
+    Collection<TimeRange> actual = query.query(events, request);
+
+    Assert.assertEquals(
+        Arrays.asList(
+            TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TIME_0900AM, false),
+            TimeRange.fromStartEnd(TIME_1230PM + 15, TimeRange.END_OF_DAY, true)),
+        actual);
+  }
+
+  @Test
+  public void passedDeadlineReturnsPartialResults() {
+    // Out of time before the first gap is found, so nothing is returned, no fallback to the
+    // mandatory attendees is tried, and the answer is flagged as partial.
+    Collection<Event> events =
+        Arrays.asList(
+            new Event(
+                "Event 1",
+                TimeRange.fromStartDuration(TIME_0900AM, DURATION_60_MINUTES),
+                Arrays.asList(PERSON_A)));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+    request.setDeadline(Deadline.after(0));
+    long timeouts = Metrics.get("query.timeouts");
+
+    Collection<TimeRange> actual = query.query(events, request);
+
+    Assert.assertEquals(Arrays.asList(), actual);
+    Assert.assertTrue(request.getDeadline().isReached());
+    Assert.assertEquals(timeouts + 1, Metrics.get("query.timeouts"));
+  }
+
+  @Test
+  public void passedDeadlineCutsHorizonSearchShort() {
+    AvailabilityPyramid pyramid = new AvailabilityPyramid(3);
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), DURATION_30_MINUTES);
+    request.addOptionalAttendee(PERSON_B);
+    request.setDeadline(Deadline.after(0));
+
+    Collection<TimeRange> actual = query.queryHorizon(pyramid, request);
+
+    Assert.assertEquals(Arrays.asList(), actual);
+    Assert.assertTrue(request.getDeadline().isReached());
+  }
 }
@@ -0,0 +1,117 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for expanding groups with {@link GroupDirectory}. */
+@RunWith(JUnit4.class)
+public final class GroupDirectoryTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+  private static final String PERSON_C = "Person C";
+  private static final String PERSON_D = "Person D";
+
+  private GroupDirectory directory;
+
+  @Before
+  public void setUp() {
+    directory = new GroupDirectory();
+  }
+
+  @Test
+  public void peopleAreKeptAsTheyAre() {
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_A, PERSON_B)),
+        directory.expand(Arrays.asList(PERSON_A, PERSON_B)));
+  }
+
+  @Test
+  public void nestedGroupsAreFlattened() {
+    // Both "eng" and "design" contain "leads", which should only be counted once.
+    directory.setMembers("leads", Arrays.asList(PERSON_A));
+    directory.setMembers("eng", Arrays.asList("leads", PERSON_B));
+    directory.setMembers("design", Arrays.asList("leads", PERSON_C));
+    directory.setMembers("everyone", Arrays.asList("eng", "design"));
+
+    Assert.assertTrue(directory.isGroup("everyone"));
+    Assert.assertFalse(directory.isGroup(PERSON_A));
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_A, PERSON_B, PERSON_C, PERSON_D)),
+        directory.expand(Arrays.asList("everyone", PERSON_D)));
+  }
+
+  @Test
+  public void changingAGroupUpdatesTheGroupsContainingIt() {
+    directory.setMembers("eng", Arrays.asList(PERSON_A));
+    directory.setMembers("design", Arrays.asList(PERSON_B));
+    directory.setMembers("everyone", Arrays.asList("eng", "design"));
+    directory.expand(Arrays.asList("everyone"));
+
+    directory.setMembers("eng", Arrays.asList(PERSON_C));
+
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_B, PERSON_C)),
+        directory.expand(Arrays.asList("everyone")));
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_B)), directory.expand(Arrays.asList("design")));
+  }
+
+  @Test
+  public void personBecomingAGroupIsExpanded() {
+    directory.setMembers("everyone", Arrays.asList("eng", PERSON_A));
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList("eng", PERSON_A)), directory.expand(Arrays.asList("everyone")));
+
+    directory.setMembers("eng", Arrays.asList(PERSON_B));
+
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_A, PERSON_B)),
+        directory.expand(Arrays.asList("everyone")));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void cyclesAreReported() {
+    directory.setMembers("eng", Arrays.asList("platform", PERSON_A));
+    directory.setMembers("platform", Arrays.asList("infra"));
+    directory.setMembers("infra", Arrays.asList("eng"));
+
+    directory.expand(Arrays.asList("eng"));
+  }
+
+  @Test
+  public void expandRequestKeepsMandatoryAttendeesMandatory() {
+    directory.setMembers("eng", Arrays.asList(PERSON_A, PERSON_B));
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 30);
+    request.addOptionalAttendee("eng");
+    request.setAlignment(15, 30);
+
+    MeetingRequest expanded = directory.expand(request);
+
+    Assert.assertEquals(Collections.singleton(PERSON_A), new HashSet<>(expanded.getAttendees()));
+    Assert.assertEquals(
+        Collections.singleton(PERSON_B), new HashSet<>(expanded.getOptionalAttendees()));
+    Assert.assertEquals(30, expanded.getDuration());
+    Assert.assertEquals(15, expanded.getAlignment());
+    Assert.assertEquals(30, expanded.getStep());
+  }
+}
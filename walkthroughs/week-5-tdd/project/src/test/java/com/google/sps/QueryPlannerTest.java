@@ -0,0 +1,155 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class QueryPlannerTest {
+  private QueryPlanner planner;
+
+  @Before
+  public void setUp() {
+    planner = new QueryPlanner();
+  }
+
+  @Test
+  public void fewBusyAttendeesAreSwept() {
+    List<String> attendees = people(2);
+    EventStore store = new EventStore(busyEveryHour(attendees));
+
+    Assert.assertEquals(
+        QueryPlanner.Plan.SWEEP,
+        planner.choose(store, attendees, new MeetingRequest(attendees, 30)));
+  }
+
+  @Test
+  public void manySparseAttendeesUseABitmap() {
+    List<String> attendees = people(100);
+    EventStore store = new EventStore(busyEveryHour(attendees.subList(0, 10)));
+    long before = Metrics.get("query.plan.bitmap");
+
+    Assert.assertEquals(
+        QueryPlanner.Plan.BITMAP,
+        planner.choose(store, attendees, new MeetingRequest(attendees, 30)));
+    Assert.assertEquals(before + 1, Metrics.get("query.plan.bitmap"));
+  }
+
+  @Test
+  public void firstAvailableStopsAtTheFirstFit() {
+    List<String> attendees = people(100);
+    MeetingRequest request = new MeetingRequest(attendees, 30);
+    request.setFirstAvailable(true);
+
+    Assert.assertEquals(
+        QueryPlanner.Plan.FIRST_FIT, planner.choose(new EventStore(), attendees, request));
+  }
+
+  @Test
+  public void bitmapFindsTheSameTimesAsSweep() {
+    // Sources that cannot estimate their busy times are always swept.
+    List<String> attendees = people(60);
+    EventStore store =
+        new EventStore(randomEvents(new Random(42), attendees, 150, /*days=*/ 1, /*longest=*/ 45));
+
+    assertPlansAgree(store, attendees);
+  }
+
+  @Test
+  public void bitmapFindsTheSameTimesAsSweepAcrossDays() {
+    // Events before, after and across the end of the first day, which both plans must cut off.
+    List<String> attendees = people(60);
+    List<Event> events = randomEvents(new Random(7), attendees, 150, /*days=*/ 3, /*longest=*/ 300);
+    events.add(
+        new Event(
+            "Overnight",
+            TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(22, 0), 600),
+            Arrays.asList(attendees.get(0))));
+    EventStore store = new EventStore(events);
+
+    assertPlansAgree(store, attendees);
+  }
+
+  /** Checks that the store is queried with a bitmap, and that a sweep finds the same times. */
+  private void assertPlansAgree(final EventStore store, List<String> attendees) {
+    // Sources that cannot estimate their busy times are always swept.
+    BusyTimeSource unplanned =
+        new BusyTimeSource() {
+          @Override
+          public Iterator<TimeRange> getBusyTimes(Collection<String> attendees) {
+            return store.getBusyTimes(attendees);
+          }
+        };
+
+    FindMeetingQuery query = new FindMeetingQuery();
+    for (int duration : new int[] {1, 15, 30, 60}) {
+      MeetingRequest request = new MeetingRequest(attendees, duration);
+      Assert.assertEquals(QueryPlanner.Plan.BITMAP, planner.choose(store, attendees, request));
+      Assert.assertEquals(query.query(unplanned, request), query.query(store, request));
+    }
+  }
+
+  /**
+   * Returns {@code count} events of at most {@code longest} minutes, each for one of {@code
+   * attendees} and starting at any minute of the first {@code days} days. A quarter are empty.
+   */
+  private static List<Event> randomEvents(
+      Random random, List<String> attendees, int count, int days, int longest) {
+    List<Event> events = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      int start = random.nextInt(days * TimeRange.WHOLE_DAY.duration());
+      int duration = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(longest);
+      events.add(
+          new Event(
+              "Event " + i,
+              TimeRange.fromStartDuration(start, duration),
+              Arrays.asList(attendees.get(random.nextInt(attendees.size())))));
+    }
+    return events;
+  }
+
+  private static List<String> people(int count) {
+    List<String> people = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      people.add("Person " + i);
+    }
+    return people;
+  }
+
+  private static List<Event> busyEveryHour(List<String> attendees) {
+    List<Event> events = new ArrayList<>();
+    for (String attendee : attendees) {
+      for (int hour = 0; hour < 24; hour++) {
+        events.add(
+            new Event(
+                "Meeting",
+                TimeRange.fromStartDuration(TimeRange.getTimeInMinutes(hour, 0), 30),
+                Arrays.asList(attendee)));
+      }
+    }
+    return events;
+  }
+}
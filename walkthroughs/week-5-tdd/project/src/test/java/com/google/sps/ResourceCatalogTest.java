@@ -0,0 +1,71 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class ResourceCatalogTest {
+  private static final Collection<String> NO_FEATURES = Collections.emptySet();
+
+  private static final Resource SMALL = new Resource("Small", 3, Arrays.asList("whiteboard"));
+  private static final Resource EXACT = new Resource("Exact", 6, Arrays.asList("projector"));
+  private static final Resource LARGE =
+      new Resource("Large", 20, Arrays.asList("projector", "whiteboard"));
+
+  private ResourceCatalog catalog;
+
+  @Before
+  public void setUp() {
+    catalog = new ResourceCatalog(Arrays.asList(SMALL, EXACT, LARGE));
+  }
+
+  @Test
+  public void capacityFiltersWithinAndAcrossBuckets() {
+    // 5 and 6 share a bucket, so the capacity of EXACT must still be checked against 5 and 7.
+    Assert.assertEquals(Arrays.asList(EXACT, LARGE), catalog.find(5, NO_FEATURES));
+    Assert.assertEquals(Arrays.asList(EXACT, LARGE), catalog.find(6, NO_FEATURES));
+    Assert.assertEquals(Arrays.asList(LARGE), catalog.find(7, NO_FEATURES));
+    Assert.assertEquals(Arrays.asList(), catalog.find(21, NO_FEATURES));
+  }
+
+  @Test
+  public void everyFeatureIsRequired() {
+    Assert.assertEquals(Arrays.asList(SMALL, LARGE), catalog.find(1, Arrays.asList("whiteboard")));
+    Assert.assertEquals(
+        Arrays.asList(LARGE), catalog.find(1, Arrays.asList("whiteboard", "projector")));
+    Assert.assertEquals(Arrays.asList(), catalog.find(1, Arrays.asList("espresso machine")));
+  }
+
+  @Test
+  public void lookUpByName() {
+    Assert.assertEquals(EXACT, catalog.get("Exact"));
+    Assert.assertNull(catalog.get("Missing"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void duplicateNamesAreRejected() {
+    catalog.add(new Resource("Small", 10, NO_FEATURES));
+  }
+}
@@ -0,0 +1,124 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.hold;
+
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class HoldsTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  private static final TimeRange NINE_TO_TEN = TimeRange.fromStartDuration(540, 60);
+  private static final TimeRange NINE_THIRTY_TO_TEN_THIRTY = TimeRange.fromStartDuration(570, 60);
+
+  @Test
+  public void overlappingHoldsConflictUntilReleased() {
+    Holds holds = new Holds(new EventStore(), /*ttlTicks=*/ 10, /*stripeCount=*/ 4);
+
+    Hold first = holds.hold("First", NINE_TO_TEN, Arrays.asList(PERSON_A));
+    Assert.assertNotNull(first);
+    Assert.assertNull(
+        holds.hold("Second", NINE_THIRTY_TO_TEN_THIRTY, Arrays.asList(PERSON_A, PERSON_B)));
+    // Nothing was reserved for B by the failed hold.
+    Assert.assertNotNull(holds.hold("Third", NINE_TO_TEN, Arrays.asList(PERSON_B)));
+
+    Assert.assertTrue(holds.release(first.getId()));
+    Assert.assertFalse(holds.release(first.getId()));
+    Assert.assertNotNull(holds.hold("Fourth", NINE_THIRTY_TO_TEN_THIRTY, Arrays.asList(PERSON_A)));
+  }
+
+  @Test
+  public void confirmingWritesTheEvent() throws IOException {
+    EventStore store = new EventStore();
+    Holds holds = new Holds(store, /*ttlTicks=*/ 10, /*stripeCount=*/ 4);
+
+    Hold hold = holds.hold("Meeting", NINE_TO_TEN, Arrays.asList(PERSON_A, PERSON_B));
+    Event event = holds.confirm(hold.getId(), store::addAll);
+
+    Assert.assertEquals(
+        new Event("Meeting", NINE_TO_TEN, Arrays.asList(PERSON_A, PERSON_B)), event);
+    Assert.assertEquals(Arrays.asList(event), store.getEvents());
+    Assert.assertEquals(0, holds.size());
+    Assert.assertNull(holds.confirm(hold.getId(), store::addAll));
+    // The event now blocks the time on its own.
+    Assert.assertNull(holds.hold("Again", NINE_THIRTY_TO_TEN_THIRTY, Arrays.asList(PERSON_B)));
+  }
+
+  @Test
+  public void expiredHoldsFreeTheirTime() throws IOException {
+    EventStore store = new EventStore();
+    Holds holds = new Holds(store, /*ttlTicks=*/ 2, /*stripeCount=*/ 4);
+
+    Hold hold = holds.hold("Meeting", NINE_TO_TEN, Arrays.asList(PERSON_A));
+    holds.tick();
+    Assert.assertEquals(1, holds.size());
+    holds.tick();
+
+    Assert.assertEquals(0, holds.size());
+    Assert.assertNull(holds.confirm(hold.getId(), store::addAll));
+    Assert.assertEquals(Collections.emptyList(), store.getEvents());
+    Assert.assertNotNull(holds.hold("Later", NINE_TO_TEN, Arrays.asList(PERSON_A)));
+  }
+
+  @Test
+  public void onlyOneRacingHoldWins() throws Exception {
+    EventStore store = new EventStore();
+    Holds holds = new Holds(store, /*ttlTicks=*/ 10, /*stripeCount=*/ 64);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      // Every booking wants A plus someone of its own, so they share A and nothing else.
+      List<Future<Hold>> results = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        final String other = "Person " + i;
+        results.add(
+            executor.submit(
+                new Callable<Hold>() {
+                  @Override
+                  public Hold call() {
+                    return holds.hold("Race", NINE_TO_TEN, Arrays.asList(other, PERSON_A));
+                  }
+                }));
+      }
+
+      int winners = 0;
+      for (Future<Hold> result : results) {
+        if (result.get() != null) {
+          winners++;
+        }
+      }
+      Assert.assertEquals(1, winners);
+      Assert.assertEquals(1, holds.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
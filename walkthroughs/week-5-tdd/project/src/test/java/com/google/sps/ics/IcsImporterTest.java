@@ -0,0 +1,164 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.ics;
+
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class IcsImporterTest {
+  private static final String CALENDAR =
+      String.join(
+          "\r\n",
+          "BEGIN:VCALENDAR",
+          "VERSION:2.0",
+          "BEGIN:VEVENT",
+          "SUMMARY:Team Sync\\, weekly",
+          "DTSTART:20200101T093000Z",
+          "DTEND:20200101T100000Z",
+          "ATTENDEE;CN=\"Ava: PM\";ROLE=REQ-PARTICIPANT:mailto:ava@example.com",
+          "ATTENDEE:mailto:liam@exam",
+          " ple.com",
+          "BEGIN:VALARM",
+          "DTSTART:20200101T000000Z",
+          "END:VALARM",
+          "END:VEVENT",
+          "BEGIN:VEVENT",
+          "SUMMARY:Offsite",
+          "DTSTART;VALUE=DATE:20200102",
+          "ATTENDEE;CN=Liam:mailto:liam@example.com",
+          "END:VEVENT",
+          "BEGIN:VEVENT",
+          "SUMMARY:Lunch",
+          "DTSTART:20200101T120000",
+          "DURATION:PT1H15M",
+          "END:VEVENT",
+          "BEGIN:VEVENT",
+          "SUMMARY:No start",
+          "END:VEVENT",
+          "END:VCALENDAR",
+          "");
+
+  @Test
+  public void parsesEventsOneAtATime() throws IOException {
+    IcsParser parser = new IcsParser(new StringReader(CALENDAR));
+
+    Event sync = parser.next();
+    Assert.assertEquals("Team Sync, weekly", sync.getTitle());
+    Assert.assertEquals(TimeRange.fromStartEnd(570, 600, false), sync.getWhen());
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList("Ava: PM", "liam@example.com")), sync.getAttendees());
+
+    Event offsite = parser.next();
+    Assert.assertEquals(TimeRange.WHOLE_DAY, offsite.getWhen());
+    Assert.assertEquals(new HashSet<>(Arrays.asList("Liam")), offsite.getAttendees());
+
+    Event lunch = parser.next();
+    Assert.assertEquals(TimeRange.fromStartDuration(720, 75), lunch.getWhen());
+
+    Assert.assertNull(parser.next());
+  }
+
+  @Test
+  public void endTimesBeforeOrAtTheStart() throws IOException {
+    IcsParser parser =
+        new IcsParser(
+            new StringReader(
+                String.join(
+                    "\n",
+                    "BEGIN:VEVENT",
+                    "SUMMARY:Reminder",
+                    "DTSTART:20200101T090000Z",
+                    "DTEND:20200101T090000Z",
+                    "END:VEVENT",
+                    "BEGIN:VEVENT",
+                    "SUMMARY:Night shift",
+                    "DTSTART:20200101T220000Z",
+                    "DTEND:20200102T060000Z",
+                    "END:VEVENT",
+                    "")));
+
+    Assert.assertEquals(TimeRange.fromStartDuration(540, 0), parser.next().getWhen());
+    Assert.assertEquals(TimeRange.fromStartEnd(1320, 1800, false), parser.next().getWhen());
+    Assert.assertNull(parser.next());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void malformedTimesAreRejected() throws IOException {
+    new IcsParser(new StringReader("BEGIN:VEVENT\nDTSTART:20200101T2599\nEND:VEVENT\n")).next();
+  }
+
+  @Test
+  public void importsInBatches() throws IOException {
+    String calendar = calendarOf(2500);
+    EventStore store = new EventStore();
+    final List<Integer> batchSizes = new ArrayList<>();
+
+    int added =
+        IcsImporter.importAll(
+            new StringReader(calendar),
+            events -> {
+              batchSizes.add(events.size());
+              store.addAll(events);
+            },
+            1000);
+
+    Assert.assertEquals(2500, added);
+    Assert.assertEquals(2500, store.size());
+    Assert.assertEquals(Arrays.asList(1000, 1000, 500), batchSizes);
+  }
+
+  @Test(timeout = 10000)
+  public void sinkRuntimeExceptionIsRethrown() throws IOException {
+    IllegalStateException failure = new IllegalStateException("store is full");
+    try {
+      IcsImporter.importAll(
+          new StringReader(calendarOf(2500)),
+          events -> {
+            throw failure;
+          },
+          100);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      Assert.assertSame(failure, e);
+    }
+  }
+
+  private static String calendarOf(int eventCount) {
+    StringBuilder calendar = new StringBuilder("BEGIN:VCALENDAR\n");
+    for (int i = 0; i < eventCount; i++) {
+      calendar
+          .append("BEGIN:VEVENT\nSUMMARY:Event ")
+          .append(i)
+          .append("\nDTSTART:20200101T0900\nDURATION:PT30M\nATTENDEE;CN=Person ")
+          .append(i % 10)
+          .append(":mailto:x\nEND:VEVENT\n");
+    }
+    calendar.append("END:VCALENDAR\n");
+    return calendar.toString();
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.sps.Event;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class JsonTest {
+  private static final String PERSON_A = "Person A";
+  private static final String PERSON_B = "Person B";
+
+  @Test
+  public void timeRangeIsStartAndDuration() {
+    TimeRange range = TimeRange.fromStartDuration(480, 30);
+
+    Assert.assertEquals("{\"start\":480,\"duration\":30}", Json.GSON.toJson(range));
+    Assert.assertEquals(
+        range, Json.GSON.fromJson("{\"duration\":30,\"start\":480}", TimeRange.class));
+  }
+
+  @Test
+  public void eventRoundTrips() {
+    Event event =
+        new Event("Sync", TimeRange.fromStartDuration(600, 60), Arrays.asList(PERSON_A, PERSON_B));
+
+    Assert.assertEquals(event, Json.GSON.fromJson(Json.GSON.toJson(event), Event.class));
+  }
+
+  @Test
+  public void attendeeNamesAreInterned() {
+    Event first =
+        Json.GSON.fromJson(
+            "{\"title\":\"1\",\"when\":{\"start\":0,\"duration\":5},\"attendees\":[\"Person Z\"]}",
+            Event.class);
+    Event second =
+        Json.GSON.fromJson(
+            "{\"title\":\"2\",\"when\":{\"start\":5,\"duration\":5},\"attendees\":[\"Person Z\"]}",
+            Event.class);
+
+    Assert.assertSame(
+        first.getAttendees().iterator().next(), second.getAttendees().iterator().next());
+  }
+
+  @Test
+  public void meetingRequestReadsClientFields() {
+    MeetingRequest request =
+        Json.GSON.fromJson(
+            "{\"duration\":\"30\",\"attendees\":[\"Person A\"],"
+                + "\"optional_attendees\":[\"Person A\",\"Person B\"],\"alignment\":15}",
+            MeetingRequest.class);
+
+    Assert.assertEquals(30, request.getDuration());
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_A)), new HashSet<>(request.getAttendees()));
+    // Person A is mandatory, so only Person B stays optional.
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList(PERSON_B)), new HashSet<>(request.getOptionalAttendees()));
+    Assert.assertEquals(15, request.getAlignment());
+    Assert.assertEquals(15, request.getStep());
+    Assert.assertFalse(request.needsRoom());
+    Assert.assertTrue(request.getRoomFeatures().isEmpty());
+  }
+
+  @Test
+  public void meetingRequestRoundTrips() {
+    MeetingRequest request = new MeetingRequest(Arrays.asList(PERSON_A), 45);
+    request.addOptionalAttendee(PERSON_B);
+    request.requireRoom(6, Arrays.asList("projector"));
+
+    MeetingRequest copy = Json.GSON.fromJson(Json.GSON.toJson(request), MeetingRequest.class);
+
+    Assert.assertEquals(request.getDuration(), copy.getDuration());
+    Assert.assertEquals(new HashSet<>(request.getAttendees()), new HashSet<>(copy.getAttendees()));
+    Assert.assertEquals(
+        new HashSet<>(request.getOptionalAttendees()), new HashSet<>(copy.getOptionalAttendees()));
+    Assert.assertEquals(request.getRoomCapacity(), copy.getRoomCapacity());
+    Assert.assertEquals(
+        new HashSet<>(request.getRoomFeatures()), new HashSet<>(copy.getRoomFeatures()));
+  }
+}
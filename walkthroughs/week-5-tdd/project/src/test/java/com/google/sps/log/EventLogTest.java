@@ -0,0 +1,165 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.log;
+
+import com.google.sps.Event;
+import com.google.sps.EventStore;
+import com.google.sps.TimeRange;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class EventLogTest {
+  private static final Event EVENT_1 = event("Event 1", 480, "Person A");
+  private static final Event EVENT_2 = event("Event 2", 540, "Person B");
+  private static final Event EVENT_3 = event("Event 3", 600, "Person A");
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void changesAreReplayedOnOpen() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    try (EventLog log = EventLog.open(directory, new EventStore())) {
+      log.addAll(Arrays.asList(EVENT_1, EVENT_2));
+      log.addAll(Arrays.asList(EVENT_3));
+      log.removeAll(Arrays.asList(EVENT_2));
+    }
+
+    EventStore reloaded = new EventStore();
+    EventLog.open(directory, reloaded).close();
+
+    Assert.assertEquals(Arrays.asList(EVENT_1, EVENT_3), reloaded.getEvents());
+  }
+
+  @Test
+  public void initialEventsAreOnlyLoggedOnce() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    try (EventLog log = EventLog.open(directory, new EventStore(Arrays.asList(EVENT_1)))) {
+      log.addAll(Arrays.asList(EVENT_2));
+      log.compact();
+    }
+    try (EventLog log = EventLog.open(directory, new EventStore(Arrays.asList(EVENT_1)))) {
+      log.removeAll(Arrays.asList(EVENT_1));
+      log.addAll(Arrays.asList(EVENT_3));
+      log.compact();
+    }
+
+    EventStore reloaded = new EventStore(Arrays.asList(EVENT_1));
+    EventLog.open(directory, reloaded).close();
+
+    Assert.assertEquals(Arrays.asList(EVENT_2, EVENT_3), reloaded.getEvents());
+  }
+
+  @Test
+  public void compactionKeepsEverythingAndDropsOldSegments() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    try (EventLog log = EventLog.open(directory, new EventStore(), /*compactAfterRecords=*/ 2)) {
+      log.addAll(Arrays.asList(EVENT_1));
+      log.addAll(Arrays.asList(EVENT_2));
+      log.removeAll(Arrays.asList(EVENT_1));
+      log.addAll(Arrays.asList(EVENT_3));
+    }
+
+    // Two compactions happened, so only the second snapshot and the segment after it are left.
+    Assert.assertEquals(
+        new HashSet<>(Arrays.asList("snapshot-2", "log-2")),
+        new HashSet<>(Arrays.asList(folder.getRoot().list())));
+
+    EventStore reloaded = new EventStore();
+    EventLog.open(directory, reloaded).close();
+    Assert.assertEquals(Arrays.asList(EVENT_2, EVENT_3), reloaded.getEvents());
+  }
+
+  @Test
+  public void tornRecordIsCutOff() throws IOException {
+    Path directory = folder.getRoot().toPath();
+    try (EventLog log = EventLog.open(directory, new EventStore())) {
+      log.addAll(Arrays.asList(EVENT_1));
+    }
+    // A crash half way through writing the next record.
+    try (FileChannel channel =
+        FileChannel.open(new File(folder.getRoot(), "log-0").toPath(), StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[] {0, 0, 1, 0, 42}));
+    }
+
+    EventStore reloaded = new EventStore();
+    try (EventLog log = EventLog.open(directory, reloaded)) {
+      log.addAll(Arrays.asList(EVENT_2));
+    }
+    EventStore again = new EventStore();
+    EventLog.open(directory, again).close();
+
+    Assert.assertEquals(Arrays.asList(EVENT_1, EVENT_2), reloaded.getEvents());
+    Assert.assertEquals(Arrays.asList(EVENT_1, EVENT_2), again.getEvents());
+  }
+
+  @Test
+  public void concurrentWritersAreAllLogged() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    final int writerCount = 8;
+    final int eventsPerWriter = 25;
+    final AtomicInteger failures = new AtomicInteger();
+    try (final EventLog log =
+        EventLog.open(directory, new EventStore(), /*compactAfterRecords=*/ 60)) {
+      List<Thread> writers = new ArrayList<>();
+      for (int w = 0; w < writerCount; w++) {
+        final int writer = w;
+        Thread thread =
+            new Thread(
+                () -> {
+                  for (int i = 0; i < eventsPerWriter; i++) {
+                    try {
+                      log.addAll(
+                          Collections.singletonList(event("Event " + i, i, "Person " + writer)));
+                    } catch (IOException e) {
+                      failures.incrementAndGet();
+                    }
+                  }
+                });
+        writers.add(thread);
+        thread.start();
+      }
+      for (Thread thread : writers) {
+        thread.join();
+      }
+    }
+
+    EventStore reloaded = new EventStore();
+    EventLog.open(directory, reloaded).close();
+    Assert.assertEquals(0, failures.get());
+    Assert.assertEquals(writerCount * eventsPerWriter, reloaded.size());
+  }
+
+  private static Event event(String title, int start, String attendee) {
+    return new Event(title, TimeRange.fromStartDuration(start, 30), Arrays.asList(attendee));
+  }
+}
@@ -0,0 +1,144 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.shard;
+
+import com.google.sps.Event;
+import com.google.sps.Events;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class ShardCoordinatorTest {
+  private static final List<Event> EVENTS = Arrays.asList(Events.events);
+
+  private final List<ShardWorker> workers = new ArrayList<>();
+  private final List<Process> processes = new ArrayList<>();
+  private ShardCoordinator coordinator;
+
+  @After
+  public void tearDown() throws IOException {
+    if (coordinator != null) {
+      coordinator.close();
+    }
+    for (ShardWorker worker : workers) {
+      worker.close();
+    }
+    for (Process process : processes) {
+      process.destroy();
+    }
+  }
+
+  @Test
+  public void shardedQueriesMatchOneStore() throws IOException {
+    List<InetSocketAddress> shards = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ShardWorker worker = new ShardWorker(0);
+      workers.add(worker);
+      shards.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.getPort()));
+    }
+    coordinator = new ShardCoordinator(shards);
+    coordinator.addEvents(EVENTS);
+
+    assertMatchesOneStore(Arrays.asList("Amelia", "Ava", "Liam"), "Olivia");
+    assertMatchesOneStore(Arrays.asList("James", "Noah"), "Isabella");
+  }
+
+  @Test
+  public void shardsCanBeSeparateProcesses() throws IOException {
+    List<InetSocketAddress> shards = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      shards.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), startWorkerProcess()));
+    }
+    coordinator = new ShardCoordinator(shards);
+    coordinator.addEvents(EVENTS);
+
+    assertMatchesOneStore(Arrays.asList("Emma", "Logan", "Oliver"), "Ava");
+  }
+
+  @Test
+  public void badRequestsGetErrorReplies() throws IOException {
+    ShardWorker worker = new ShardWorker(0);
+    workers.add(worker);
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), worker.getPort());
+        Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+      for (String request : Arrays.asList("", "{}", "{\"op\": \"busy\"}", "{\"op\": 3}")) {
+        writer.write(request + "\n");
+        writer.flush();
+        Assert.assertTrue(request, reader.readLine().startsWith("{\"error\":"));
+      }
+
+      // The connection is still usable afterwards.
+      writer.write("{\"op\": \"busy\", \"attendees\": []}\n");
+      writer.flush();
+      Assert.assertEquals("{\"busy\":[]}", reader.readLine());
+    }
+  }
+
+  private void assertMatchesOneStore(Collection<String> attendees, String optionalAttendee) {
+    MeetingRequest request = new MeetingRequest(attendees, 30);
+    request.addOptionalAttendee(optionalAttendee);
+    FindMeetingQuery query = new FindMeetingQuery();
+
+    Collection<TimeRange> expected = query.query(EVENTS, request);
+    Collection<TimeRange> actual = query.query(coordinator, request);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  /** Launches a worker in a new JVM on the test class path and returns the port it listens on. */
+  private int startWorkerProcess() throws IOException {
+    String java =
+        System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    String classPath =
+        System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+    Process process =
+        new ProcessBuilder(java, "-cp", classPath, ShardWorker.class.getName())
+            .redirectErrorStream(true)
+            .start();
+    processes.add(process);
+
+    BufferedReader output =
+        new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    String line = output.readLine();
+    if (line == null || !line.startsWith("READY ")) {
+      throw new IOException("worker did not start: " + line);
+    }
+    return Integer.parseInt(line.substring("READY ".length()).trim());
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.trace;
+
+import com.google.sps.Event;
+import com.google.sps.FindMeetingQuery;
+import com.google.sps.MeetingRequest;
+import com.google.sps.TimeRange;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class QueryTraceTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void sweepIsRecordedWithItsCounts() throws IOException {
+    List<Event> events =
+        Arrays.asList(
+            new Event("Event 1", TimeRange.fromStartDuration(480, 30), Arrays.asList("Person A")),
+            new Event("Event 2", TimeRange.fromStartDuration(600, 30), Arrays.asList("Person B")));
+    MeetingRequest request = new MeetingRequest(Arrays.asList("Person A", "Person B"), 30);
+
+    Path file = folder.getRoot().toPath().resolve("query.jfr");
+    try (Recording recording = new Recording()) {
+      // Custom events are recorded unless turned off, so turn off the other phases.
+      recording.enable("com.google.sps.QuerySweep");
+      recording.disable("com.google.sps.QueryParse");
+      recording.disable("com.google.sps.QueryIndexLookup");
+      recording.disable("com.google.sps.QuerySerialize");
+      recording.start();
+      new FindMeetingQuery().query(events, request);
+      recording.stop();
+      recording.dump(file);
+    }
+
+    // Other tests may be querying at the same time, so only count this thread's sweeps.
+    List<RecordedEvent> recorded = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      if (event.getEventType().getName().equals("com.google.sps.QuerySweep")
+          && event.getThread().getJavaThreadId() == Thread.currentThread().getId()) {
+        recorded.add(event);
+      }
+    }
+    Assert.assertEquals(1, recorded.size());
+    RecordedEvent sweep = recorded.get(0);
+    Assert.assertEquals(2, sweep.getInt("attendees"));
+    Assert.assertEquals(2, sweep.getLong("eventsScanned"));
+    Assert.assertEquals(3, sweep.getInt("results"));
+  }
+
+  @Test
+  public void unrecordedPhasesDoNothing() {
+    QueryTrace.Span span = QueryTrace.begin(QueryTrace.Phase.PARSE);
+    span.setAttendees(3);
+    span.end();
+
+    Assert.assertEquals(QueryTrace.Span.class, span.getClass());
+  }
+}